@@ -0,0 +1,51 @@
+package com.dev.funcinema.repository;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Movie as it was mapped with IDENTITY ids, kept only as the baseline for MovieInsertBenchmark
+@Entity
+@Getter
+@Setter
+@Table(name = "identity_movies")
+public class IdentityMovie {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false)
+    private String director;
+
+    @ElementCollection
+    @CollectionTable(name = "identity_movie_genres", joinColumns = @JoinColumn(name = "movie_id"))
+    private Set<String> genres = new HashSet<>();
+
+    private LocalDate releaseDate;
+
+    private Integer durationMinutes;
+
+    private Double rating;
+
+    @Column(length = 1000)
+    private String plot;
+
+    private boolean featured;
+}
@@ -0,0 +1,165 @@
+package com.dev.funcinema.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+import com.dev.funcinema.model.Movie;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Bulk saveAll of movies with genres, as DataInitializer (10 rows) and ingestion-sized chunks (500 rows)
+// do it, with the production settings (jdbc.batch_size 50, ordered inserts). Compares the old IDENTITY
+// mapping against the pooled sequence. Runs against in-memory H2, so the time mostly reflects Hibernate
+// work; the roundTrips counter is what a networked PostgreSQL pays per statement execution.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieInsertBenchmark {
+
+    @Param({"IDENTITY", "POOLED_SEQUENCE"})
+    public String idGeneration;
+
+    @Param({"10", "500"})
+    public int movies;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    private SessionFactory sessionFactory;
+
+    // Round trips per saveAll; JMH sums EVENTS counters over an iteration, so divide by the operation count
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long roundTrips;
+
+        public long saves;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:inserts_" + idGeneration + "_" + movies + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DATASOURCE, countingDataSource(h2))
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                .applySetting(AvailableSettings.ORDER_INSERTS, "true")
+                .applySetting(AvailableSettings.ORDER_UPDATES, "true")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass("IDENTITY".equals(idGeneration) ? IdentityMovie.class : Movie.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void saveAll(Counters counters) {
+        long before = roundTrips.get();
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < movies; i++) {
+                session.persist("IDENTITY".equals(idGeneration) ? identityMovie(i) : movie(i));
+            }
+            transaction.commit();
+        }
+        counters.roundTrips += roundTrips.get() - before;
+        counters.saves++;
+    }
+
+    private static Movie movie(int i) {
+        return Movie.builder()
+                .title("Movie " + i)
+                .director("Director " + (i % 100))
+                .genres(Set.of("Drama", "Genre " + (i % 20)))
+                .releaseDate(LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28))
+                .durationMinutes(80 + i % 100)
+                .rating(1 + (i % 90) / 10.0)
+                .plot("Plot of movie " + i)
+                .build();
+    }
+
+    private static IdentityMovie identityMovie(int i) {
+        Movie movie = movie(i);
+        IdentityMovie identityMovie = new IdentityMovie();
+        identityMovie.setTitle(movie.getTitle());
+        identityMovie.setDirector(movie.getDirector());
+        identityMovie.getGenres().addAll(movie.getGenres());
+        identityMovie.setReleaseDate(movie.getReleaseDate());
+        identityMovie.setDurationMinutes(movie.getDurationMinutes());
+        identityMovie.setRating(movie.getRating());
+        identityMovie.setPlot(movie.getPlot());
+        return identityMovie;
+    }
+
+    // Counts every statement execution (execute*, executeBatch) as one round trip to the database
+    private DataSource countingDataSource(DataSource target) {
+        return proxy(DataSource.class, target, (dataSourceMethod, connection) ->
+                connection instanceof Connection ? proxy(Connection.class, (Connection) connection, (connectionMethod, statement) ->
+                        statement instanceof Statement ? countingStatement(connectionMethod.getReturnType(), statement) : statement)
+                        : connection);
+    }
+
+    private Object countingStatement(Class<?> statementType, Object statement) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementType}, (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                roundTrips.incrementAndGet();
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, T target, BiFunction<Method, Object, Object> wrapResult) {
+        InvocationHandler handler = (proxy, method, args) -> wrapResult.apply(method, invoke(target, method, args));
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
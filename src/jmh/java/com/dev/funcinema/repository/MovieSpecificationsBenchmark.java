@@ -0,0 +1,91 @@
+package com.dev.funcinema.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.model.Movie;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Criteria predicate construction for a search, against Hibernate's real CriteriaBuilder.
+// The session factory is built from metadata only, so no database is needed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class MovieSpecificationsBenchmark {
+
+    private SessionFactory sessionFactory;
+
+    private CriteriaBuilder criteriaBuilder;
+
+    private MovieSearchDTO fullSearch;
+
+    private List<Long> candidateIds;
+
+    @Setup
+    public void setUp() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect")
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .applySetting("hibernate.hbm2ddl.auto", "none")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Movie.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        criteriaBuilder = sessionFactory.getCriteriaBuilder();
+
+        fullSearch = MovieSearchDTO.builder()
+                .title("dark")
+                .director("nolan")
+                .genre("crime")
+                .releaseYearStart(LocalDate.of(2000, 1, 1))
+                .releaseYearEnd(LocalDate.of(2020, 12, 31))
+                .minRating(8.0)
+                .featured(true)
+                .build();
+        candidateIds = List.of(3L, 4L, 17L, 42L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Predicate buildSpecification() {
+        CriteriaQuery<Movie> query = criteriaBuilder.createQuery(Movie.class);
+        Root<Movie> root = query.from(Movie.class);
+        return MovieSpecifications.buildSpecification(fullSearch).toPredicate(root, query, criteriaBuilder);
+    }
+
+    @Benchmark
+    public Predicate buildSpecificationWithIndexCandidates() {
+        CriteriaQuery<Movie> query = criteriaBuilder.createQuery(Movie.class);
+        Root<Movie> root = query.from(Movie.class);
+        return MovieSpecifications.buildSpecification(fullSearch, candidateIds)
+                .toPredicate(root, query, criteriaBuilder);
+    }
+}
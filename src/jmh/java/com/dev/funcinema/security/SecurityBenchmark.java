@@ -0,0 +1,90 @@
+package com.dev.funcinema.security;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.dev.funcinema.model.Role;
+import com.dev.funcinema.model.User;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// Per-request authentication work: token signing, verification and principal construction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class SecurityBenchmark {
+
+    private JwtUtils jwtUtils;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private User user;
+
+    private UserDetailsImpl userDetails;
+
+    private String sessionId;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        // Base64 of a 512-bit key, the minimum jjwt accepts for HS512
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "c2VjcmV0LWtleS1mb3ItdGhlLWZ1bmNpbmVtYS1qbWgtYmVuY2htYXJrcy1wYWRkZWQtdG8tc2l4dHktZm91ci1ieXRlcw==");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpirationMs", 604800000);
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtils, new SimpleMeterRegistry(), 10000, 300000);
+
+        user = User.builder()
+                .id(7L)
+                .username("johndoe")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z7GmJZ2Rc2sQz9rVd2e3zY1K")
+                .email("john.doe@example.com")
+                .mobileNumber("+1234567890")
+                .fullName("John Doe")
+                .emailVerified(true)
+                .mobileVerified(true)
+                .roles(Set.of(Role.builder().id(1).name(Role.ERole.ROLE_USER).build()))
+                .build();
+
+        userDetails = UserDetailsImpl.build(user);
+        sessionId = UUID.randomUUID().toString();
+        token = jwtUtils.generateJwtToken(userDetails, sessionId);
+    }
+
+    @Benchmark
+    public String generateJwtToken() {
+        return jwtUtils.generateJwtToken(userDetails, sessionId);
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public Claims verifiedTokenCacheHit() {
+        return verifiedTokenCache.getClaims(token);
+    }
+
+    @Benchmark
+    public UserDetailsImpl buildUserDetails() {
+        return UserDetailsImpl.build(user);
+    }
+}
@@ -0,0 +1,58 @@
+package com.dev.funcinema.service;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Entity <-> DTO conversion on every movie read and write
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class MovieMapperBenchmark {
+
+    private Movie movie;
+
+    private MovieDTO movieDTO;
+
+    @Setup
+    public void setUp() {
+        movie = Movie.builder()
+                .id(42L)
+                .title("The Dark Knight")
+                .director("Christopher Nolan")
+                .genres(Set.of("Action", "Crime", "Drama", "Thriller"))
+                .releaseDate(LocalDate.of(2008, 7, 18))
+                .durationMinutes(152)
+                .rating(9.0)
+                .plot("When the menace known as the Joker wreaks havoc and chaos on the people of Gotham, Batman must accept one of the greatest psychological and physical tests of his ability to fight injustice.")
+                .featured(true)
+                .build();
+        movieDTO = MovieMapper.toDTO(movie);
+    }
+
+    @Benchmark
+    public MovieDTO convertToDTO() {
+        return MovieMapper.toDTO(movie);
+    }
+
+    @Benchmark
+    public Movie convertToEntity() {
+        return MovieMapper.toEntity(movieDTO);
+    }
+}
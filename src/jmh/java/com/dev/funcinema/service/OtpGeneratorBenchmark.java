@@ -0,0 +1,36 @@
+package com.dev.funcinema.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// OTP generation from the shared SecureRandom, contended across threads during signup bursts
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class OtpGeneratorBenchmark {
+
+    private OtpGenerator otpGenerator;
+
+    @Setup
+    public void setUp() {
+        otpGenerator = new OtpGenerator(6);
+    }
+
+    @Benchmark
+    public String generate() {
+        return otpGenerator.generate();
+    }
+}
@@ -1,8 +1,15 @@
 package com.dev.funcinema.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
@@ -11,25 +18,68 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableAsync
+@EnableConfigurationProperties(ExecutorProperties.class)
 public class AsyncConfig implements AsyncConfigurer {
 
+    private final ExecutorProperties properties;
+
+    private final LongAdder taskExecutorRejections = new LongAdder();
+
+    public AsyncConfig(ExecutorProperties properties) {
+        this.properties = properties;
+    }
+
     @Bean(name = "virtualThreadTaskExecutor")
-    public Executor virtualThreadTaskExecutor() {
-        // Creating an executor that uses virtual threads
-        // Each task submitted to this executor will run in its own virtual thread
-        return Executors.newVirtualThreadPerTaskExecutor();
+    public BoundedVirtualThreadExecutor virtualThreadTaskExecutor() {
+        // Each task submitted to this executor runs in its own virtual thread, with at most
+        // max-concurrency of them running so a burst cannot pile up on the connection pool
+        ExecutorProperties.VirtualWorkload workload = properties.getVirtualThreads();
+        return new BoundedVirtualThreadExecutor("virtualThreadTaskExecutor",
+                workload.getMaxConcurrency(), workload.getMaxQueued());
+    }
+
+    @Bean(name = "paymentTaskExecutor")
+    public BoundedVirtualThreadExecutor paymentTaskExecutor() {
+        // Payment gateway calls get their own permits, so slow charges cannot starve the other async work
+        ExecutorProperties.VirtualWorkload workload = properties.getPayments();
+        return new BoundedVirtualThreadExecutor("paymentTaskExecutor",
+                workload.getMaxConcurrency(), workload.getMaxQueued());
+    }
+
+    @Bean(name = "paymentCompletionExecutor", destroyMethod = "close")
+    public ExecutorService paymentCompletionExecutor() {
+        // Completes purchases after the gateway has answered or timed out. Unbounded, so it never rejects:
+        // by then the card may have been charged. Each completion is one short transaction, so the
+        // connection pool bounds the work, not this executor. Closing waits for running completions.
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("paymentCompletion-", 0).factory());
     }
 
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
         // This is a fallback executor using platform threads
         // We define this for compatibility and demonstration purposes
+        ExecutorProperties.Platform platform = properties.getPlatform();
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(50);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("MovieApi-Thread-");
+        executor.setCorePoolSize(platform.getCorePoolSize());
+        executor.setMaxPoolSize(platform.getMaxPoolSize());
+        executor.setQueueCapacity(platform.getQueueCapacity());
+        executor.setThreadNamePrefix(platform.getThreadNamePrefix());
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            taskExecutorRejections.increment();
+            new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+        });
         executor.initialize();
         return executor;
     }
+
+    // Spring Boot already publishes executor.active/queued/pool.* for the platform pool (tag name=taskExecutor);
+    // rejections are the one figure it does not count
+    @Bean
+    public MeterBinder taskExecutorRejectionMetrics() {
+        return registry -> FunctionCounter.builder("executor.rejected", taskExecutorRejections, LongAdder::sum)
+                .tag("name", "taskExecutor")
+                .description("Tasks rejected because the pool and its queue were full")
+                .baseUnit("tasks")
+                .register(registry);
+    }
 }
@@ -0,0 +1,131 @@
+package com.dev.funcinema.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Runs every task on its own virtual thread, but at most maxConcurrency of them at once: the
+// thread waits for a semaphore permit before running the task, which costs no platform thread.
+// Submissions are rejected once maxQueued tasks are waiting. Publishes executor.* meters tagged
+// with the executor name, alongside Micrometer's metrics for the platform pools.
+@Slf4j
+public class BoundedVirtualThreadExecutor implements Executor, MeterBinder, DisposableBean {
+
+    private final String name;
+
+    private final int maxConcurrency;
+
+    private final int maxQueued;
+
+    private final Semaphore permits;
+
+    private final ExecutorService virtualThreads;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedVirtualThreadExecutor(String name, int maxConcurrency, int maxQueued) {
+        if (maxConcurrency <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("Executor " + name + " needs a positive max-concurrency and a non-negative max-queued");
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrency);
+        this.virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Executor " + name + " has " + maxQueued + " tasks waiting, rejecting");
+        }
+
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // Only happens on shutdown
+                    Thread.currentThread().interrupt();
+                    log.warn("Executor {} shut down before a queued task could run", name);
+                    return;
+                } finally {
+                    queued.decrementAndGet();
+                }
+
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("executor.active", this, BoundedVirtualThreadExecutor::getActiveCount)
+                .tag("name", name)
+                .description("Tasks currently running")
+                .baseUnit("threads")
+                .register(registry);
+        Gauge.builder("executor.queued", this, BoundedVirtualThreadExecutor::getQueuedCount)
+                .tag("name", name)
+                .description("Tasks waiting for a permit")
+                .baseUnit("tasks")
+                .register(registry);
+        Gauge.builder("executor.pool.max", this, executor -> executor.maxConcurrency)
+                .tag("name", name)
+                .description("Permits, the maximum number of tasks running at once")
+                .baseUnit("threads")
+                .register(registry);
+        FunctionCounter.builder("executor.completed", completed, LongAdder::sum)
+                .tag("name", name)
+                .description("Tasks that finished running")
+                .baseUnit("tasks")
+                .register(registry);
+        FunctionCounter.builder("executor.rejected", rejected, LongAdder::sum)
+                .tag("name", name)
+                .description("Tasks rejected because too many were waiting")
+                .baseUnit("tasks")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        // Interrupts running tasks and drops the queued ones
+        virtualThreads.shutdownNow();
+    }
+}
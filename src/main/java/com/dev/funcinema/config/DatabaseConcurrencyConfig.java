@@ -0,0 +1,65 @@
+package com.dev.funcinema.config;
+
+import java.lang.reflect.Method;
+
+import com.dev.funcinema.service.DatabaseConcurrencyLimiter;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
+
+// Puts every @Async @Transactional method behind the DatabaseConcurrencyLimiter. The advisor runs on
+// the async thread just outside the transaction interceptor, so a task waits for a permit before it
+// asks the pool for a connection. Infrastructure role, so Boot's auto-proxy creator picks it up
+// without AspectJ.
+@Configuration(proxyBeanMethods = false)
+@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+public class DatabaseConcurrencyConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static DatabaseConcurrencyLimiter databaseConcurrencyLimiter(
+            Environment environment,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        // Bound here rather than injected: advisors are created before ExecutorProperties could be post-processed
+        ExecutorProperties.Database database = Binder.get(environment)
+                .bind("executors.database", ExecutorProperties.Database.class)
+                .orElseGet(ExecutorProperties.Database::new);
+        // Keep a few connections for synchronous requests and background jobs
+        int permits = Math.max(1, poolSize - database.getReservedConnections());
+        return new DatabaseConcurrencyLimiter(permits, database.getMaxWait(), database.getRetryAfter());
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor databaseConcurrencyAdvisor(DatabaseConcurrencyLimiter databaseConcurrencyLimiter) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(new AsyncTransactionalPointcut(),
+                databaseConcurrencyLimiter);
+        // Transactions are advised at LOWEST_PRECEDENCE; this must wrap them
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+
+    private static final class AsyncTransactionalPointcut extends StaticMethodMatcherPointcut {
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+            return AnnotatedElementUtils.hasAnnotation(specificMethod, Async.class)
+                    && (AnnotatedElementUtils.hasAnnotation(specificMethod, Transactional.class)
+                    || AnnotatedElementUtils.hasAnnotation(specificMethod.getDeclaringClass(), Transactional.class));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dev.funcinema.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Sizing of the named executors defined in AsyncConfig (executors.* in application.yml)
+@Data
+@ConfigurationProperties(prefix = "executors")
+public class ExecutorProperties {
+
+    // "virtualThreadTaskExecutor": @Async service methods, most of which hold a database connection
+    private VirtualWorkload virtualThreads = new VirtualWorkload(100, 10_000);
+
+    // "paymentTaskExecutor": payment gateway calls, which wait on the network and hold no connection
+    private VirtualWorkload payments = new VirtualWorkload(500, 10_000);
+
+    // "taskExecutor": platform thread pool
+    private Platform platform = new Platform();
+
+    // Admission of @Async @Transactional work to the connection pool (DatabaseConcurrencyLimiter)
+    private Database database = new Database();
+
+    @Data
+    public static class VirtualWorkload {
+
+        // Tasks of this workload running at the same time; the rest wait for a permit
+        private int maxConcurrency;
+
+        // Tasks waiting for a permit before new submissions are rejected
+        private int maxQueued;
+
+        public VirtualWorkload() {
+        }
+
+        public VirtualWorkload(int maxConcurrency, int maxQueued) {
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    @Data
+    public static class Platform {
+
+        private int corePoolSize = 10;
+
+        private int maxPoolSize = 50;
+
+        private int queueCapacity = 100;
+
+        private String threadNamePrefix = "MovieApi-Thread-";
+    }
+
+    @Data
+    public static class Database {
+
+        // Pool connections left for synchronous requests and background jobs
+        private int reservedConnections = 2;
+
+        // Milliseconds a task may wait for a permit before it is shed with a 503
+        private long maxWait = 2000;
+
+        // Seconds, sent back as the Retry-After header
+        private long retryAfter = 1;
+    }
+}
@@ -0,0 +1,60 @@
+package com.dev.funcinema.config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Per-route request limits enforced by RateLimitFilter (rate-limit.* in application.yml)
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Buckets kept in memory; a bucket idle this long is full again and is dropped
+    private long maximumBuckets = 100_000;
+    private long idleExpiry = 600_000;
+
+    // Largest request body searched for a username; bigger bodies are limited by IP only
+    private int maxBodyBytes = 16_384;
+
+    // Checked in order, the first route matching the request applies
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Route {
+
+        // Path patterns, e.g. /api/auth/verify/**
+        private List<String> paths = new ArrayList<>();
+
+        // HTTP methods the route applies to, any method when empty
+        private List<String> methods = new ArrayList<>();
+
+        private ClientKey clientKey = ClientKey.PRINCIPAL;
+
+        // Either limit may be left out
+        private Limit perIp;
+        private Limit perClient;
+    }
+
+    // Bursts of up to capacity requests, refilled evenly over period milliseconds
+    @Data
+    public static class Limit {
+
+        private int capacity;
+
+        private long period;
+    }
+
+    public enum ClientKey {
+        // The username field of the JSON body, for sign-in style endpoints that target an account
+        USERNAME,
+        // The subject of a valid bearer token
+        PRINCIPAL
+    }
+}
@@ -109,9 +109,9 @@ public class AuthController {
     }
 
     @PostMapping("/refresh")
-    public ResponseEntity<String> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
-        String token = authService.refreshToken(request.getRefreshToken());
-        return ResponseEntity.ok(token);
+    public ResponseEntity<AuthResponse> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse response = authService.refreshToken(request.getRefreshToken());
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/logout")
@@ -1,16 +1,32 @@
 package com.dev.funcinema.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+import com.dev.funcinema.dto.CursorPageDTO;
+import com.dev.funcinema.dto.IngestionReportDTO;
 import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.dto.MovieDetailsDTO;
 import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.repository.MovieVersion;
+import com.dev.funcinema.service.MovieDetailsService;
+import com.dev.funcinema.service.MovieIngestionService;
 import com.dev.funcinema.service.MovieService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,17 +36,32 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
 @RequestMapping("/api/movies")
 public class MovieController {
 
+    private static final int FLUSH_EVERY_ROWS = 100;
+
     private final MovieService movieService;
 
+    private final MovieIngestionService movieIngestionService;
+
+    private final MovieDetailsService movieDetailsService;
+
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public MovieController(MovieService movieService) {
+    public MovieController(MovieService movieService,
+                           MovieIngestionService movieIngestionService,
+                           MovieDetailsService movieDetailsService,
+                           ObjectMapper objectMapper) {
         this.movieService = movieService;
+        this.movieIngestionService = movieIngestionService;
+        this.movieDetailsService = movieDetailsService;
+        this.objectMapper = objectMapper;
     }
 
     // Asynchronous CRUD endpoints
@@ -43,17 +74,78 @@ public class MovieController {
                         new ResponseEntity<>(createdMovie, HttpStatus.CREATED));
     }
 
+    // Bulk load from a JSON array or an NDJSON stream; the body is parsed incrementally,
+    // so the request never has to fit in memory. Invalid rows are reported, not fatal.
+    @PostMapping(value = "/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<IngestionReportDTO> ingestMovies(HttpServletRequest request) throws IOException {
+        try (MappingIterator<MovieDTO> movies = objectMapper.readerFor(MovieDTO.class)
+                .readValues(request.getInputStream())) {
+            return ResponseEntity.ok(movieIngestionService.ingest(movies));
+        }
+    }
+
+    // Conditional GET: If-None-Match / If-Modified-Since are checked against the movie's version
+    // and last-modified time alone, so an unchanged movie is answered with 304 without loading it
     @GetMapping("/getMovieById/{id}")
     public CompletableFuture<ResponseEntity<MovieDTO>> getMovieByIdAsync(
-            @PathVariable Long id) {
+            @PathVariable Long id, WebRequest request) {
+        MovieVersion version = movieService.getMovieVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return CompletableFuture.completedFuture(null);
+        }
         return movieService.getMovieByIdAsync(id)
-                .thenApply(ResponseEntity::ok);
+                .thenApply(movie -> {
+                    // Validators of the movie actually returned, which may be newer than the check above
+                    MovieVersion returned = new MovieVersion(id, movie.getVersion(), movie.getLastModified());
+                    return ResponseEntity.ok()
+                            .eTag(returned.etag())
+                            .lastModified(returned.lastModifiedMillis())
+                            .body(movie);
+                });
     }
 
+    // Movie page in one round trip: the movie, ownership and related titles are looked up in parallel
+    @GetMapping("/{id}/details")
+    public ResponseEntity<MovieDetailsDTO> getMovieDetails(@PathVariable Long id) {
+        return ResponseEntity.ok(movieDetailsService.getMovieDetails(id));
+    }
+
+    // The ETag is a fingerprint of the whole catalog. It is computed before the movies are loaded,
+    // so it is never newer than the body it is sent with.
     @GetMapping
-    public CompletableFuture<ResponseEntity<List<MovieDTO>>> getAllMoviesAsync() {
+    public CompletableFuture<ResponseEntity<List<MovieDTO>>> getAllMoviesAsync(WebRequest request) {
+        String etag = movieService.fingerprintAllMovies().etag("all");
+        if (request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(null);
+        }
         return movieService.getAllMoviesAsync()
-                .thenApply(ResponseEntity::ok);
+                .thenApply(movies -> ResponseEntity.ok().eTag(etag).body(movies));
+    }
+
+    // Newline-delimited JSON export, selected with "Accept: application/x-ndjson".
+    // Each movie is written as soon as it is read, so memory stays flat regardless of catalog size.
+    // Written on the request's own (virtual) thread, so long exports are not cut off by the async timeout.
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamAllMovies(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        OutputStream outputStream = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(MovieDTO.class);
+        int[] written = {0};
+        movieService.exportMovies(movie -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(movie));
+                outputStream.write('\n');
+                if (++written[0] % FLUSH_EVERY_ROWS == 0) {
+                    outputStream.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        outputStream.flush();
     }
 
     @PutMapping("/{id}")
@@ -77,4 +169,34 @@ public class MovieController {
         return movieService.searchMoviesAsync(searchDTO)
                 .thenApply(ResponseEntity::ok);
     }
+
+    // Cursor search from query parameters, for polling clients: answered with 304 while no movie
+    // matching the filters has changed
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CursorPageDTO<MovieDTO>> searchMoviesByCursor(MovieSearchDTO searchDTO, WebRequest request) {
+        String etag = movieService.fingerprintSearch(searchDTO).etag(searchScope(searchDTO));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(movieService.searchMoviesByCursor(searchDTO));
+    }
+
+    @PostMapping("/search/cursor")
+    public CompletableFuture<ResponseEntity<CursorPageDTO<MovieDTO>>> searchMoviesByCursorAsync(
+            @RequestBody MovieSearchDTO searchDTO) {
+        return movieService.searchMoviesByCursorAsync(searchDTO)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    // The fingerprint already covers which movies match; the scope adds what decides which of them
+    // are returned, and in what order. Spelled out so that new filter fields cannot slip into it.
+    private static String searchScope(MovieSearchDTO searchDTO) {
+        return "page=" + searchDTO.getPage()
+                + ";size=" + searchDTO.getSize()
+                + ";sort=" + searchDTO.getSortBy()
+                + ";asc=" + searchDTO.isAscending()
+                + ";cursor=" + searchDTO.getCursor();
+    }
 }
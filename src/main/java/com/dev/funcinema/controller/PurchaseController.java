@@ -0,0 +1,79 @@
+package com.dev.funcinema.controller;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.dev.funcinema.dto.CursorPageDTO;
+import com.dev.funcinema.dto.PaymentMethodDTO;
+import com.dev.funcinema.dto.PurchaseRequest;
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.service.PurchaseService;
+import jakarta.validation.Valid;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Purchase endpoints for the authenticated user. PurchaseService reads the user from the
+// thread-bound security context, so its methods are called on the request thread.
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/purchases")
+public class PurchaseController {
+
+    private final PurchaseService purchaseService;
+
+    // The Idempotency-Key header takes precedence over the idempotencyKey body field.
+    // The request thread is released while the payment gateway is called.
+    @PostMapping
+    public CompletableFuture<ResponseEntity<PurchaseResponse>> purchaseMovieAsync(
+            @Valid @RequestBody PurchaseRequest purchaseRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (StringUtils.hasText(idempotencyKey)) {
+            purchaseRequest.setIdempotencyKey(idempotencyKey);
+        }
+        return purchaseService.purchaseMovieAsync(purchaseRequest)
+                .thenApply(purchase -> new ResponseEntity<>(purchase, statusOf(purchase)));
+    }
+
+    // Poll this for a purchase that was answered while still PENDING
+    @GetMapping("/{id}")
+    public ResponseEntity<PurchaseResponse> getPurchase(@PathVariable Long id) {
+        return ResponseEntity.ok(purchaseService.getPurchase(id));
+    }
+
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<PurchaseResponse>> getPurchaseHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(purchaseService.getPurchaseHistory(cursor, size));
+    }
+
+    @GetMapping("/owned/{movieId}")
+    public ResponseEntity<Map<String, Object>> isMovieOwned(@PathVariable Long movieId) {
+        return ResponseEntity.ok(Map.of("movieId", movieId, "owned", purchaseService.ownsMovie(movieId)));
+    }
+
+    @GetMapping("/payment-methods")
+    public ResponseEntity<List<PaymentMethodDTO>> getAvailablePaymentMethods() {
+        return ResponseEntity.ok(purchaseService.getAvailablePaymentMethods());
+    }
+
+    private static HttpStatus statusOf(PurchaseResponse purchase) {
+        return switch (purchase.getStatus()) {
+            case COMPLETED -> HttpStatus.CREATED;
+            case PENDING -> HttpStatus.ACCEPTED;
+            default -> HttpStatus.PAYMENT_REQUIRED;
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.dev.funcinema.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Cursor Page DTO - one slice of a keyset-paginated result
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    @Builder.Default
+    private List<T> content = new ArrayList<>();
+
+    private int size;
+
+    private boolean hasNext;
+
+    // Opaque continuation token, pass it back as "cursor" to fetch the next slice
+    private String nextCursor;
+}
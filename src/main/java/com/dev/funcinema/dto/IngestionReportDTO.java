@@ -0,0 +1,52 @@
+package com.dev.funcinema.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ingestion Report DTO - outcome of a bulk movie load
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionReportDTO {
+
+    private long totalRows;
+    private long inserted;
+    private long failed;
+    private long elapsedMillis;
+
+    @Builder.Default
+    private List<ChunkReport> chunks = new ArrayList<>();
+
+    // Capped, see movie.ingest.max-reported-failures; "failed" always holds the full count
+    @Builder.Default
+    private List<RowFailure> failures = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChunkReport {
+        private int chunk;
+        private int rows;
+        private int inserted;
+        private long elapsedMillis;
+        private double rowsPerSecond;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowFailure {
+        // Zero-based position of the row in the submitted array or stream
+        private long row;
+        private String title;
+        private List<String> errors;
+    }
+}
@@ -0,0 +1,29 @@
+package com.dev.funcinema.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Movie Details DTO - everything a movie page needs, from one request
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieDetailsDTO {
+
+    private MovieDTO movie;
+
+    // Whether the current user has purchased the movie; null when the check was unavailable
+    private Boolean owned;
+
+    // Highest rated movies sharing a genre; null when the lookup was unavailable
+    private List<MovieDTO> relatedMovies;
+
+    // Optional sections left out because their lookup failed or timed out
+    @Builder.Default
+    private List<String> unavailable = new ArrayList<>();
+}
@@ -2,6 +2,8 @@ package com.dev.funcinema.dto;
 
 import java.time.LocalDate;
 
+import org.springframework.format.annotation.DateTimeFormat;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +18,10 @@ public class MovieSearchDTO {
     private String title;
     private String director;
     private String genre;
+    // ISO dates (2024-01-31) when bound from query parameters
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private LocalDate releaseYearStart;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private LocalDate releaseYearEnd;
     private Double minRating;
     private Boolean featured;
@@ -32,4 +37,7 @@ public class MovieSearchDTO {
 
     @Builder.Default
     private boolean ascending = true;
+
+    // Continuation token for cursor search, null for the first slice
+    private String cursor;
 }
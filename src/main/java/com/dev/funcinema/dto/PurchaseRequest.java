@@ -3,6 +3,7 @@ package com.dev.funcinema.dto;
 
 import com.dev.funcinema.model.Purchase;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,6 +22,10 @@ public class PurchaseRequest {
     @NotNull(message = "Payment method is required")
     private Purchase.PaymentMethod paymentMethod;
 
+    // Client-chosen key that makes retries of the same purchase safe
+    @Size(max = 100, message = "Idempotency key must be at most 100 characters")
+    private String idempotencyKey;
+
     // Payment details - in a real system, these would be handled securely
     private String cardNumber;
     private String cardExpiry;
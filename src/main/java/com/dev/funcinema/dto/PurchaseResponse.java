@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 
 // Purchase Response DTO
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PurchaseResponse {
@@ -27,4 +27,5 @@ public class PurchaseResponse {
     private Purchase.PurchaseStatus status;
     private LocalDateTime purchaseDate;
     private LocalDateTime completedDate;
+    private String failureReason;
 }
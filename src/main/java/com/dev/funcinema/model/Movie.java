@@ -1,5 +1,6 @@
 package com.dev.funcinema.model;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
@@ -7,16 +8,21 @@ import java.util.Set;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
-import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Positive;
 
+import org.hibernate.annotations.BatchSize;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,11 +33,24 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "movies")
+@Table(name = "movies", indexes = {
+        // Composite (sort key, id) indexes serve the keyset search without sorting
+        @Index(name = "idx_movies_title_id", columnList = "title, id"),
+        @Index(name = "idx_movies_director_id", columnList = "director, id"),
+        @Index(name = "idx_movies_rating_id", columnList = "rating, id"),
+        // Serves the search index's sync of recently changed movies
+        @Index(name = "idx_movies_last_modified", columnList = "last_modified")
+})
 public class Movie {
 
+    // Pooled sequence: one round trip reserves 50 ids, so inserts can be sent as JDBC batches.
+    // MovieJdbcRepository draws ids from the same sequence in blocks of the same size.
+    public static final String ID_SEQUENCE = "movies_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank(message = "Title is required")
@@ -42,7 +61,10 @@ public class Movie {
     @Column(nullable = false)
     private String director;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // Lazy: each read path asks for genres explicitly (entity graph in MovieRepository), and
+    // paged results load them for up to 50 movies per query instead of one query per movie
+    @ElementCollection
+    @BatchSize(size = 50)
     @Builder.Default
     private Set<String> genres = new HashSet<>();
 
@@ -61,4 +83,19 @@ public class Movie {
 
     @Builder.Default
     private boolean featured = false;
+
+    // Optimistic lock version, incremented by every update; with the id it forms the movie's ETag
+    @Version
+    private Long version;
+
+    // Set on insert and by every update, sent as Last-Modified
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    @PrePersist
+    void initLastModified() {
+        if (lastModified == null) {
+            lastModified = Instant.now();
+        }
+    }
 }
@@ -7,12 +7,16 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
@@ -22,7 +26,15 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "purchases")
+@Table(name = "purchases", uniqueConstraints = {
+        // A retried purchase can never insert a second row, whichever instance handles it
+        @UniqueConstraint(name = "uk_purchases_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+}, indexes = {
+        // Serves the keyset-paginated purchase history of a user
+        @Index(name = "idx_purchases_user_date_id", columnList = "user_id, purchase_date, id"),
+        // Finds stale PENDING purchases for PurchaseReconciler
+        @Index(name = "idx_purchases_status_date", columnList = "status, purchase_date")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,14 +42,15 @@ import lombok.NoArgsConstructor;
 public class Purchase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchases_seq")
+    @SequenceGenerator(name = "purchases_seq", sequenceName = "purchases_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "movie_id", nullable = false)
     private Movie movie;
 
@@ -51,6 +64,13 @@ public class Purchase {
 
     private String transactionId;
 
+    @Column(length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 of the request fields the idempotency key was first used with, see PurchaseService
+    @Column(length = 64)
+    private String requestHash;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private PurchaseStatus status;
@@ -60,6 +80,10 @@ public class Purchase {
 
     private LocalDateTime completedDate;
 
+    // Why the payment did not go through, for FAILED purchases
+    @Column(length = 500)
+    private String failureReason;
+
     public enum PaymentMethod {
         CREDIT_CARD,
         DEBIT_CARD,
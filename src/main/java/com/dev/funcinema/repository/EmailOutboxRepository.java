@@ -0,0 +1,38 @@
+package com.dev.funcinema.repository;
+
+import com.dev.funcinema.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Email Outbox Repository
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // SKIP LOCKED lets several dispatchers drain the outbox without picking the same rows
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutbox> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.dev.funcinema.model.EmailOutbox.OutboxStatus.SENT, " +
+            "e.sentAt = :sentAt, e.lastError = null WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    // Bounded deletes for EmailOutboxReaper; both walk the (status, next_attempt_at) index by status
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+            "WHERE status = 'SENT' AND sent_at < :before LIMIT :limit)", nativeQuery = true)
+    int deleteSentBatch(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+            "WHERE status = 'FAILED' AND created_at < :before LIMIT :limit)", nativeQuery = true)
+    int deleteFailedBatch(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
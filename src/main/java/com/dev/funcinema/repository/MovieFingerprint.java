@@ -0,0 +1,19 @@
+package com.dev.funcinema.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.springframework.util.DigestUtils;
+
+// Aggregate over the movies matching a filter, computed by the database without loading them.
+// Any insert, update or delete among them changes at least one component: the count or id sum
+// for inserts and deletes, the version sum for updates.
+public record MovieFingerprint(long count, long idSum, long versionSum, Instant lastModified) {
+
+    // Strong ETag value (unquoted) of a representation of this result set; the scope tells apart
+    // different representations of the same movies, e.g. the page, sort and cursor of a search
+    public String etag(String scope) {
+        String raw = count + ":" + idSum + ":" + versionSum + ":" + lastModified + ":" + scope;
+        return DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
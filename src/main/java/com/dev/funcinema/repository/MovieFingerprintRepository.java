@@ -0,0 +1,11 @@
+package com.dev.funcinema.repository;
+
+import com.dev.funcinema.model.Movie;
+import org.springframework.data.jpa.domain.Specification;
+
+// Fragment of MovieRepository
+public interface MovieFingerprintRepository {
+
+    // Fingerprint of the movies matching the specification, or of all movies when it is null
+    MovieFingerprint fingerprint(Specification<Movie> specification);
+}
@@ -0,0 +1,45 @@
+package com.dev.funcinema.repository;
+
+import java.time.Instant;
+
+import com.dev.funcinema.model.Movie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+// One aggregate query over the same predicates as the search, selecting no entity columns
+@RequiredArgsConstructor
+public class MovieFingerprintRepositoryImpl implements MovieFingerprintRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public MovieFingerprint fingerprint(Specification<Movie> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Movie> root = query.from(Movie.class);
+        query.multiselect(
+                criteriaBuilder.count(root),
+                criteriaBuilder.sum(root.<Long>get("id")),
+                criteriaBuilder.sum(root.<Long>get("version")),
+                criteriaBuilder.greatest(root.<Instant>get("lastModified")));
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+
+        Tuple result = entityManager.createQuery(query).getSingleResult();
+        return new MovieFingerprint(
+                result.get(0, Long.class),
+                result.get(1, Long.class) != null ? result.get(1, Long.class) : 0,
+                result.get(2, Long.class) != null ? result.get(2, Long.class) : 0,
+                result.get(3, Instant.class));
+    }
+}
@@ -0,0 +1,180 @@
+package com.dev.funcinema.repository;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.dev.funcinema.model.Movie;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Plain JDBC access to the movies table for bulk paths that must not go through the persistence context
+@Repository
+@RequiredArgsConstructor
+public class MovieJdbcRepository {
+
+    private static final String SELECT_WITH_GENRES =
+            "SELECT m.id, m.title, m.director, m.release_date, m.duration_minutes, m.rating, m.plot, m.featured, " +
+            "m.version, m.last_modified, " +
+            "ARRAY(SELECT g.genres FROM movie_genres g WHERE g.movie_id = m.id) AS genres " +
+            "FROM movies m ";
+
+    private static final String SELECT_ALL_WITH_GENRES = SELECT_WITH_GENRES + "ORDER BY m.id";
+
+    private static final String SELECT_MODIFIED_WITH_GENRES =
+            SELECT_WITH_GENRES + "WHERE m.last_modified >= ? ORDER BY m.id";
+
+    private static final String SELECT_ALL_IDS = "SELECT id FROM movies";
+
+    // Each value is the top of a block of Movie.ID_ALLOCATION_SIZE ids, the same contract
+    // Hibernate's pooled optimizer follows, so both can draw from the sequence safely
+    private static final String NEXT_MOVIE_ID_BLOCKS =
+            "SELECT nextval('" + Movie.ID_SEQUENCE + "') FROM generate_series(1, ?)";
+
+    private static final String INSERT_MOVIE =
+            "INSERT INTO movies (id, title, director, release_date, duration_minutes, rating, plot, featured, " +
+            "version, last_modified) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_GENRE =
+            "INSERT INTO movie_genres (movie_id, genres) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Inserts the movies and their genres as two JDBC batches and assigns the generated ids to them.
+    // Ids are drawn from the identity sequence up front, since batched statements cannot return them.
+    public void batchInsert(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+
+        int blocks = (movies.size() + Movie.ID_ALLOCATION_SIZE - 1) / Movie.ID_ALLOCATION_SIZE;
+        List<Long> blockTops = jdbcTemplate.queryForList(NEXT_MOVIE_ID_BLOCKS, Long.class, blocks);
+        int next = 0;
+        for (Long top : blockTops) {
+            // A fresh sequence starts at 1, whose block holds only id 1
+            for (long id = Math.max(1, top - Movie.ID_ALLOCATION_SIZE + 1); id <= top && next < movies.size(); id++) {
+                movies.get(next++).setId(id);
+            }
+        }
+        if (next < movies.size()) {
+            // Only the very first block can be short, so one more block always suffices
+            long top = jdbcTemplate.queryForObject(NEXT_MOVIE_ID_BLOCKS, Long.class, 1);
+            for (long id = top - Movie.ID_ALLOCATION_SIZE + 1; next < movies.size(); id++) {
+                movies.get(next++).setId(id);
+            }
+        }
+
+        // Same initial state Hibernate gives a persisted movie
+        Instant now = Instant.now();
+        for (Movie movie : movies) {
+            movie.setVersion(0L);
+            movie.setLastModified(now);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_MOVIE, movies, movies.size(), (statement, movie) -> {
+            statement.setLong(1, movie.getId());
+            statement.setString(2, movie.getTitle());
+            statement.setString(3, movie.getDirector());
+            statement.setObject(4, movie.getReleaseDate() != null ? Date.valueOf(movie.getReleaseDate()) : null, Types.DATE);
+            statement.setObject(5, movie.getDurationMinutes(), Types.INTEGER);
+            statement.setObject(6, movie.getRating(), Types.DOUBLE);
+            statement.setString(7, movie.getPlot());
+            statement.setBoolean(8, movie.isFeatured());
+            statement.setLong(9, movie.getVersion());
+            statement.setObject(10, OffsetDateTime.ofInstant(movie.getLastModified(), ZoneOffset.UTC));
+        });
+
+        List<Object[]> genreRows = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getGenres() != null) {
+                for (String genre : movie.getGenres()) {
+                    genreRows.add(new Object[]{movie.getId(), genre});
+                }
+            }
+        }
+        if (!genreRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_GENRE, genreRows, new int[]{Types.BIGINT, Types.VARCHAR});
+        }
+    }
+
+    // Streams every movie through a server-side cursor, one row in memory at a time.
+    // PostgreSQL only honours the fetch size inside a transaction, so callers must run in one.
+    public void streamAll(int fetchSize, Consumer<Movie> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ALL_WITH_GENRES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, resultSet -> {
+            consumer.accept(mapMovie(resultSet));
+        });
+    }
+
+    // Streams the movies inserted or updated at or after the given time, with the same caveat as streamAll
+    public void streamModifiedSince(Instant since, int fetchSize, Consumer<Movie> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_MODIFIED_WITH_GENRES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setObject(1, OffsetDateTime.ofInstant(since, ZoneOffset.UTC));
+            return statement;
+        }, resultSet -> {
+            consumer.accept(mapMovie(resultSet));
+        });
+    }
+
+    public Set<Long> findAllIds() {
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_ALL_IDS, Long.class));
+    }
+
+    private static Movie mapMovie(ResultSet resultSet) throws SQLException {
+        Date releaseDate = resultSet.getDate("release_date");
+        int durationMinutes = resultSet.getInt("duration_minutes");
+        Integer duration = resultSet.wasNull() ? null : durationMinutes;
+        double ratingValue = resultSet.getDouble("rating");
+        Double rating = resultSet.wasNull() ? null : ratingValue;
+        OffsetDateTime lastModified = resultSet.getObject("last_modified", OffsetDateTime.class);
+
+        return Movie.builder()
+                .id(resultSet.getLong("id"))
+                .title(resultSet.getString("title"))
+                .director(resultSet.getString("director"))
+                .genres(readGenres(resultSet.getArray("genres")))
+                .releaseDate(releaseDate != null ? releaseDate.toLocalDate() : null)
+                .durationMinutes(duration)
+                .rating(rating)
+                .plot(resultSet.getString("plot"))
+                .featured(resultSet.getBoolean("featured"))
+                .version(resultSet.getLong("version"))
+                .lastModified(lastModified != null ? lastModified.toInstant() : null)
+                .build();
+    }
+
+    private static Set<String> readGenres(Array array) throws SQLException {
+        if (array == null) {
+            return new HashSet<>();
+        }
+        try {
+            // PostgreSQL returns a String[], other drivers an Object[] of strings
+            Set<String> genres = new HashSet<>();
+            for (Object genre : (Object[]) array.getArray()) {
+                genres.add((String) genre);
+            }
+            return genres;
+        } finally {
+            array.free();
+        }
+    }
+}
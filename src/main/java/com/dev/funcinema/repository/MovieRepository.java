@@ -2,10 +2,12 @@ package com.dev.funcinema.repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 import com.dev.funcinema.model.Movie;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -14,7 +16,21 @@ import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long>, JpaSpecificationExecutor<Movie> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, JpaSpecificationExecutor<Movie>,
+        MovieFingerprintRepository {
+
+    // Movie detail, with genres in the same query
+    @EntityGraph(attributePaths = "genres")
+    Optional<Movie> findWithGenresById(Long id);
+
+    // Conditional GET validators of one movie, no entity is loaded
+    @Query("SELECT new com.dev.funcinema.repository.MovieVersion(m.id, m.version, m.lastModified) "
+            + "FROM Movie m WHERE m.id = :id")
+    Optional<MovieVersion> findVersionById(@Param("id") Long id);
+
+    // Full listing, with genres in the same query (no paging, so the collection join is safe)
+    @EntityGraph(attributePaths = "genres")
+    List<Movie> findAllWithGenresBy();
 
     // Find by exact title
     List<Movie> findByTitle(String title);
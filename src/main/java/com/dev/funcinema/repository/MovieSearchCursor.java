@@ -0,0 +1,63 @@
+package com.dev.funcinema.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+import com.dev.funcinema.exception.BadRequestException;
+import com.dev.funcinema.model.Movie;
+
+// Keyset position of the last movie returned by a cursor search: its sort key value and id.
+// The token is opaque to clients; it is the sort column, direction, id and value, Base64 encoded.
+public record MovieSearchCursor(String sortBy, boolean ascending, Long id, Object value) {
+
+    // Only non-null columns can be used as a seek key
+    public static final Set<String> SORTABLE_FIELDS = Set.of("id", "title", "director", "rating");
+
+    private static final String SEPARATOR = "|";
+
+    public static void checkSortable(String sortBy) {
+        if (!SORTABLE_FIELDS.contains(sortBy)) {
+            throw new BadRequestException("Cursor search cannot sort by '" + sortBy
+                    + "', supported fields are " + SORTABLE_FIELDS);
+        }
+    }
+
+    public static MovieSearchCursor after(Movie movie, String sortBy, boolean ascending) {
+        Object value = switch (sortBy) {
+            case "title" -> movie.getTitle();
+            case "director" -> movie.getDirector();
+            case "rating" -> movie.getRating();
+            default -> movie.getId();
+        };
+        return new MovieSearchCursor(sortBy, ascending, movie.getId(), value);
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + (ascending ? "A" : "D") + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MovieSearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last so it may itself contain the separator
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+
+            String sortBy = parts[0];
+            checkSortable(sortBy);
+            Long id = Long.valueOf(parts[2]);
+            Object value = switch (sortBy) {
+                case "title", "director" -> parts[3];
+                case "rating" -> Double.valueOf(parts[3]);
+                default -> id;
+            };
+            return new MovieSearchCursor(sortBy, "A".equals(parts[1]), id, value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid search cursor: " + e.getMessage(), e);
+        }
+    }
+}
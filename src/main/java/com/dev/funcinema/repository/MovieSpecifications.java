@@ -3,43 +3,58 @@ package com.dev.funcinema.repository;
 import com.dev.funcinema.dto.MovieSearchDTO;
 import com.dev.funcinema.model.Movie;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class MovieSpecifications {
 
     public static Specification<Movie> buildSpecification(MovieSearchDTO searchDTO) {
+        return buildSpecification(searchDTO, null);
+    }
+
+    // When candidateIds is given, the title/director/genre filters were already answered by the
+    // in-memory search index and are replaced by a primary key lookup
+    public static Specification<Movie> buildSpecification(MovieSearchDTO searchDTO, Collection<Long> candidateIds) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
+            if (candidateIds != null) {
+                predicates.add(candidateIds.isEmpty()
+                        ? criteriaBuilder.disjunction()
+                        : root.get("id").in(candidateIds));
+            }
+
             // Title search (case insensitive)
-            if (StringUtils.hasText(searchDTO.getTitle())) {
+            if (candidateIds == null && StringUtils.hasText(searchDTO.getTitle())) {
                 predicates.add(criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("title")),
                         "%" + searchDTO.getTitle().toLowerCase() + "%"));
             }
 
             // Director search (case insensitive)
-            if (StringUtils.hasText(searchDTO.getDirector())) {
+            if (candidateIds == null && StringUtils.hasText(searchDTO.getDirector())) {
                 predicates.add(criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("director")),
                         "%" + searchDTO.getDirector().toLowerCase() + "%"));
             }
 
             // Genre search
-            if (StringUtils.hasText(searchDTO.getGenre())) {
-                // Using JOIN to search in the collection of genres
-                Join<Movie, String> genresJoin = root.join("genres");
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(genresJoin),
-                        "%" + searchDTO.getGenre().toLowerCase() + "%"));
-
-                // Make sure we don't get duplicate movies due to the join
-                query.distinct(true);
+            if (candidateIds == null && StringUtils.hasText(searchDTO.getGenre())) {
+                // EXISTS over the genres instead of a join, so each movie matches once without DISTINCT
+                Subquery<Integer> genreMatch = query.subquery(Integer.class);
+                Join<Movie, String> genresJoin = genreMatch.correlate(root).join("genres");
+                genreMatch.select(criteriaBuilder.literal(1))
+                        .where(criteriaBuilder.like(
+                                criteriaBuilder.lower(genresJoin),
+                                "%" + searchDTO.getGenre().toLowerCase() + "%"));
+                predicates.add(criteriaBuilder.exists(genreMatch));
             }
 
             // Release date range
@@ -68,4 +83,37 @@ public class MovieSpecifications {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    // Keyset predicate: rows strictly after the cursor in (sortBy, id) order. The OR alone gives the
+    // planner no bound on the leading column, so the index on (sortBy, id) would be read from its
+    // start and filtered; the redundant key >= value (<= descending) makes it a range scan that
+    // starts at the cursor, and the OR only filters the rows sharing the cursor's key.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Movie> seekAfter(MovieSearchCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Long> id = root.get("id");
+            if ("id".equals(cursor.sortBy())) {
+                return cursor.ascending()
+                        ? criteriaBuilder.greaterThan(id, cursor.id())
+                        : criteriaBuilder.lessThan(id, cursor.id());
+            }
+
+            Path<Comparable> key = root.get(cursor.sortBy());
+            Comparable value = (Comparable) cursor.value();
+            Predicate beyondKey = cursor.ascending()
+                    ? criteriaBuilder.greaterThan(key, value)
+                    : criteriaBuilder.lessThan(key, value);
+            Predicate sameKeyBeyondId = criteriaBuilder.and(
+                    criteriaBuilder.equal(key, value),
+                    cursor.ascending()
+                            ? criteriaBuilder.greaterThan(id, cursor.id())
+                            : criteriaBuilder.lessThan(id, cursor.id()));
+
+            Predicate fromKey = cursor.ascending()
+                    ? criteriaBuilder.greaterThanOrEqualTo(key, value)
+                    : criteriaBuilder.lessThanOrEqualTo(key, value);
+
+            return criteriaBuilder.and(fromKey, criteriaBuilder.or(beyondKey, sameKeyBeyondId));
+        };
+    }
 }
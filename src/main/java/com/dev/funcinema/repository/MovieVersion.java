@@ -0,0 +1,17 @@
+package com.dev.funcinema.repository;
+
+import java.time.Instant;
+
+// Validators of one movie for conditional GETs, read without loading the movie itself
+public record MovieVersion(Long id, Long version, Instant lastModified) {
+
+    // Strong ETag value (unquoted); changes with every update of the movie
+    public String etag() {
+        return id + "-" + version;
+    }
+
+    // -1 when unknown, which conditional request handling treats as "no Last-Modified"
+    public long lastModifiedMillis() {
+        return lastModified != null ? lastModified.toEpochMilli() : -1;
+    }
+}
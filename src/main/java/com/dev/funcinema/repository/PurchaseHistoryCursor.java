@@ -0,0 +1,38 @@
+package com.dev.funcinema.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.exception.BadRequestException;
+
+// Keyset position in a purchase history (newest first): the purchase date and id of the last row returned.
+// Clients treat the Base64 token as opaque.
+public record PurchaseHistoryCursor(LocalDateTime purchaseDate, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static PurchaseHistoryCursor after(PurchaseResponse purchase) {
+        return new PurchaseHistoryCursor(purchase.getPurchaseDate(), purchase.getId());
+    }
+
+    public String encode() {
+        String raw = purchaseDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PurchaseHistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new PurchaseHistoryCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid purchase history cursor: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,18 +1,78 @@
 package com.dev.funcinema.repository;
 
+import com.dev.funcinema.dto.PurchaseResponse;
 import com.dev.funcinema.model.Purchase;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 // Purchase Repository
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
 
+    String RESPONSE_SELECT = "SELECT new com.dev.funcinema.dto.PurchaseResponse(p.id, p.user.id, m.id, m.title, "
+            + "p.amount, p.paymentMethod, p.transactionId, p.status, p.purchaseDate, p.completedDate, "
+            + "p.failureReason) "
+            + "FROM Purchase p JOIN p.movie m ";
+
+    String HISTORY_ORDER = "ORDER BY p.purchaseDate DESC, p.id DESC";
+
+    @EntityGraph(attributePaths = "movie")
     Set<Purchase> findByUserId(Long userId);
 
+    // Purchase history pages, newest first. The constructor projection selects only the response
+    // columns and joins just the movie title, so no User, Role or Movie entities are loaded.
+
+    @Query(RESPONSE_SELECT + "WHERE p.user.id = :userId " + HISTORY_ORDER)
+    List<PurchaseResponse> findHistory(@Param("userId") Long userId, Limit limit);
+
+    @Query(RESPONSE_SELECT + "WHERE p.user.id = :userId AND (p.purchaseDate < :purchaseDate "
+            + "OR (p.purchaseDate = :purchaseDate AND p.id < :id)) " + HISTORY_ORDER)
+    List<PurchaseResponse> findHistoryAfter(@Param("userId") Long userId,
+                                            @Param("purchaseDate") LocalDateTime purchaseDate,
+                                            @Param("id") Long id,
+                                            Limit limit);
+
     Set<Purchase> findByMovieId(Long movieId);
 
     Set<Purchase> findByUserIdAndMovieId(Long userId, Long movieId);
+
+    boolean existsByUserIdAndMovieIdAndStatusIn(Long userId, Long movieId, Collection<Purchase.PurchaseStatus> statuses);
+
+    @EntityGraph(attributePaths = "movie")
+    Optional<Purchase> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Query(RESPONSE_SELECT + "WHERE p.id = :id AND p.user.id = :userId")
+    Optional<PurchaseResponse> findResponseByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Oldest first, for PurchaseReconciler
+    @Query(RESPONSE_SELECT + "WHERE p.status = com.dev.funcinema.model.Purchase.PurchaseStatus.PENDING "
+            + "AND p.purchaseDate < :before ORDER BY p.purchaseDate")
+    List<PurchaseResponse> findPendingBefore(@Param("before") LocalDateTime before, Limit limit);
+
+    // Moves a PENDING purchase to its final state; returns 0 if it was no longer PENDING
+    @Modifying
+    @Query("UPDATE Purchase p SET p.status = :status, p.transactionId = :transactionId, "
+            + "p.completedDate = :completedDate, p.failureReason = :failureReason "
+            + "WHERE p.id = :id AND p.status = com.dev.funcinema.model.Purchase.PurchaseStatus.PENDING")
+    int completePending(@Param("id") Long id,
+                        @Param("status") Purchase.PurchaseStatus status,
+                        @Param("transactionId") String transactionId,
+                        @Param("completedDate") LocalDateTime completedDate,
+                        @Param("failureReason") String failureReason);
+
+    // Ids only: ownership checks never need the purchase, user or movie entities
+    @Query("SELECT p.movie.id FROM Purchase p WHERE p.user.id = :userId AND p.status = :status")
+    List<Long> findMovieIdsByUserIdAndStatus(@Param("userId") Long userId,
+                                             @Param("status") Purchase.PurchaseStatus status);
 }
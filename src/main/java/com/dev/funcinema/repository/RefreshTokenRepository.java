@@ -0,0 +1,38 @@
+package com.dev.funcinema.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.dev.funcinema.model.RefreshToken;
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+// Refresh Token Repository
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Row lock, so two refreshes with the same token cannot both rotate it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.tokenId = :tokenId")
+    Optional<RefreshToken> findForUpdateByTokenId(@Param("tokenId") String tokenId);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT new com.dev.funcinema.repository.RevokedFamily(t.familyId, MAX(t.revokedAt)) " +
+            "FROM RefreshToken t WHERE t.revokedAt > :since GROUP BY t.familyId")
+    List<RevokedFamily> findFamiliesRevokedSince(@Param("since") LocalDateTime since);
+
+    // Expired tokens are rejected by their signature check anyway, and their families are long revoked or idle
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,7 @@
+package com.dev.funcinema.repository;
+
+import java.time.LocalDateTime;
+
+// A revoked refresh token family (login session) and when it was revoked
+public record RevokedFamily(String familyId, LocalDateTime revokedAt) {
+}
@@ -1,7 +1,12 @@
 package com.dev.funcinema.repository;
 
 import com.dev.funcinema.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,6 +17,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    // Authentication needs the roles, every other user lookup does not
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+
+    // Serializes the purchases of one user across instances, see PurchaseService
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findForUpdateById(@Param("id") Long id);
+
     Optional<User> findByEmail(String email);
 
     Optional<User> findByMobileNumber(String mobileNumber);
@@ -3,8 +3,13 @@ package com.dev.funcinema.repository;
 import com.dev.funcinema.model.User;
 import com.dev.funcinema.model.Verification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 // Verification Repository
@@ -16,4 +21,21 @@ public interface VerificationRepository extends JpaRepository<Verification, Long
     Optional<Verification> findByUserAndTypeAndCodeAndUsedFalse(User user, Verification.VerificationType type, String code);
 
     void deleteByUserAndType(User user, Verification.VerificationType type);
+
+    // One statement for all types, where the derived delete loads and removes row by row
+    @Modifying
+    @Query("DELETE FROM Verification v WHERE v.user.id = :userId AND v.type IN :types")
+    int deleteByUserIdAndTypeIn(@Param("userId") Long userId,
+                                @Param("types") Collection<Verification.VerificationType> types);
+
+    // Bounded deletes for VerificationReaper: each walks one index and removes at most :limit rows
+    @Modifying
+    @Query(value = "DELETE FROM verifications WHERE id IN (SELECT id FROM verifications " +
+            "WHERE expires_at < :now ORDER BY expires_at LIMIT :limit)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM verifications WHERE id IN (SELECT id FROM verifications " +
+            "WHERE used LIMIT :limit)", nativeQuery = true)
+    int deleteUsedBatch(@Param("limit") int limit);
 }
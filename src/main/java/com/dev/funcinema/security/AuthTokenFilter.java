@@ -14,17 +14,21 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class AuthTokenFilter extends OncePerRequestFilter {
 
-    private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtPrincipalResolver principalResolver;
+    private final TokenRevocationList revocationList;
 
-    public AuthTokenFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
-        this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+    public AuthTokenFilter(VerifiedTokenCache verifiedTokenCache, JwtPrincipalResolver principalResolver,
+                           TokenRevocationList revocationList) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.principalResolver = principalResolver;
+        this.revocationList = revocationList;
     }
 
     @Override
@@ -32,10 +36,16 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Signature is verified once per token, repeat requests are served from the cache
+            Claims claims = jwt != null ? verifiedTokenCache.getClaims(jwt) : null;
+            // Refresh tokens are not bearer credentials; revoked sessions are ruled out in memory
+            if (claims != null && (JwtUtils.isRefreshToken(claims)
+                    || revocationList.isRevoked(JwtUtils.getSessionId(claims)))) {
+                claims = null;
+            }
+            // The principal is rebuilt from the token claims, without a user lookup
+            UserDetails userDetails = claims != null ? principalResolver.resolve(claims) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,30 @@
+package com.dev.funcinema.security;
+
+import io.jsonwebtoken.Claims;
+
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Turns verified token claims into the request principal without database access. The claims are
+// a snapshot taken when the token was issued; they are refreshed from the database on every token
+// refresh, so role, status and verification changes apply within one access-token lifetime.
+@Slf4j
+@Component
+public class JwtPrincipalResolver {
+
+    private final JwtUtils jwtUtils;
+
+    public JwtPrincipalResolver(JwtUtils jwtUtils) {
+        this.jwtUtils = jwtUtils;
+    }
+
+    public UserDetails resolve(Claims claims) {
+        UserDetails userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+        if (userDetails == null) {
+            log.debug("Rejecting token without principal claims for user {}", claims.getSubject());
+        }
+        return userDetails;
+    }
+}
@@ -1,23 +1,43 @@
 package com.dev.funcinema.security;
 
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
 public class JwtUtils {
 
+    // Principal claims carried by access tokens, so requests can be authenticated without a user lookup
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_EMAIL_VERIFIED = "emailVerified";
+    public static final String CLAIM_MOBILE_VERIFIED = "mobileVerified";
+    public static final String CLAIM_ACTIVE = "active";
+
+    // Login session shared by the access and refresh tokens of one login, see TokenRevocationList
+    public static final String CLAIM_SESSION_ID = "sid";
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -27,26 +47,64 @@ public class JwtUtils {
     @Value("${jwt.refresh-expiration}")
     private int refreshExpirationMs;
 
-    public String generateJwtToken(Authentication authentication) {
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+    // HS512 needs a key of at least 512 bits; fail at startup rather than on the first login
+    @PostConstruct
+    void validateSecret() {
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(jwtSecret);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("jwt.secret must be Base64 encoded", e);
+        }
+        if (key.length < 64) {
+            throw new IllegalStateException("jwt.secret must decode to at least 512 bits for HS512, got "
+                    + key.length * 8);
+        }
+    }
+
+    // Every access token belongs to a login session, so that it can be revoked with the session
+    public String generateJwtToken(UserDetailsImpl userPrincipal, String sessionId) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
 
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_EMAIL, userPrincipal.getEmail())
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_EMAIL_VERIFIED, userPrincipal.isEmailVerified())
+                .claim(CLAIM_MOBILE_VERIFIED, userPrincipal.isMobileVerified())
+                .claim(CLAIM_ACTIVE, userPrincipal.isActive())
+                .claim(CLAIM_SESSION_ID, Objects.requireNonNull(sessionId, "sessionId"))
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
                 .compact();
     }
 
-    public String generateRefreshToken(String username) {
+    // The token id (jti) is what RefreshTokenService keeps server-side
+    public String generateRefreshToken(String username, String tokenId, String sessionId, Date expiration) {
         return Jwts.builder()
                 .setSubject(username)
+                .setId(tokenId)
+                .claim(CLAIM_SESSION_ID, sessionId)
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + refreshExpirationMs))
+                .setExpiration(expiration)
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
                 .compact();
     }
 
+    // Refresh tokens only buy new access tokens, they never authenticate a request
+    public static boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE, String.class));
+    }
+
+    public static String getSessionId(Claims claims) {
+        return claims.get(CLAIM_SESSION_ID, String.class);
+    }
+
     public String getUserNameFromJwtToken(String token) {
         return Jwts.parser()
                 .setSigningKey(jwtSecret)
@@ -56,9 +114,13 @@ public class JwtUtils {
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Verifies signature and expiry once and returns the claims, or null if the token is not valid
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken).getBody();
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -71,10 +133,38 @@ public class JwtUtils {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    // Rebuilds the principal from the claims of an access token, or returns null when the
+    // token carries no principal claims
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+
+        return UserDetailsImpl.builder()
+                .id(userId.longValue())
+                .username(claims.getSubject())
+                .email(claims.get(CLAIM_EMAIL, String.class))
+                .authorities(authorities)
+                .emailVerified(Boolean.TRUE.equals(claims.get(CLAIM_EMAIL_VERIFIED, Boolean.class)))
+                .mobileVerified(Boolean.TRUE.equals(claims.get(CLAIM_MOBILE_VERIFIED, Boolean.class)))
+                .active(!Boolean.FALSE.equals(claims.get(CLAIM_ACTIVE, Boolean.class)))
+                .build();
     }
 
     public Long getExpirationTime() {
         return (long) jwtExpirationMs;
     }
+
+    public Long getRefreshExpirationTime() {
+        return (long) refreshExpirationMs;
+    }
 }
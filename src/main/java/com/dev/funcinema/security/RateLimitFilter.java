@@ -0,0 +1,354 @@
+package com.dev.funcinema.security;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.dev.funcinema.config.RateLimitProperties;
+import com.dev.funcinema.config.RateLimitProperties.ClientKey;
+import com.dev.funcinema.config.RateLimitProperties.Limit;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Token-bucket rate limiting per route, by client IP and by username or token subject. Runs ahead of
+// Spring Security, so a refused request costs a map lookup and a compare-and-set: no database
+// access, no password hashing and no mail. Refusals answer 429 with Retry-After and are counted
+// as rate.limit.rejected, tagged with the route and the key that ran out (ip or client).
+// The client IP is getRemoteAddr(), which is the proxy's unless server.forward-headers-strategy is set.
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final List<Route> routes;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxBodyBytes;
+
+    public RateLimitFilter(RateLimitProperties properties,
+                           VerifiedTokenCache verifiedTokenCache,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.objectMapper = objectMapper;
+        this.maxBodyBytes = properties.getMaxBodyBytes();
+        this.routes = properties.getRoutes().entrySet().stream()
+                .map(entry -> new Route(entry.getKey(), entry.getValue(), meterRegistry))
+                .toList();
+
+        // A bucket must not be dropped before it has refilled, or dropping it would reset a drained client
+        long longestPeriod = routes.stream()
+                .flatMap(route -> Stream.of(route.perIp, route.perClient))
+                .filter(Objects::nonNull)
+                .mapToLong(Limit::getPeriod)
+                .max()
+                .orElse(0);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumBuckets())
+                .expireAfterAccess(Duration.ofMillis(Math.max(properties.getIdleExpiry(), longestPeriod)))
+                .build();
+
+        Gauge.builder("rate.limit.buckets", buckets, cache -> cache.estimatedSize())
+                .description("Token buckets of recently seen clients")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Route route = match(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        // The IP bucket comes first: it needs nothing beyond the connection
+        if (route.perIp != null && !admit(route, route.perIp, "ip", "ip:" + request.getRemoteAddr(), now, request, response)) {
+            return;
+        }
+
+        if (route.perClient != null) {
+            String client;
+            if (route.clientKey == ClientKey.USERNAME) {
+                BufferedBodyRequest buffered = new BufferedBodyRequest(request, maxBodyBytes);
+                request = buffered;
+                String username = buffered.isComplete() ? readUsername(buffered.getPrefix()) : null;
+                client = username != null ? "user:" + username : null;
+            } else {
+                client = principal(request);
+            }
+            if (client != null && !admit(route, route.perClient, "client", client, now, request, response)) {
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private Route match(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Route route : routes) {
+            if (route.matches(request.getMethod(), path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private boolean admit(Route route, Limit limit, String keyType, String key, long now,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        TokenBucket bucket = buckets.get(route.name + '|' + key,
+                ignored -> new TokenBucket(limit.getCapacity(), TimeUnit.MILLISECONDS.toNanos(limit.getPeriod()), now));
+        long waitNanos = bucket.tryConsume(now);
+        if (waitNanos == 0) {
+            return true;
+        }
+
+        route.rejected(keyType).increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Rate limit {} exceeded by {}, retry in {} s", route.name, key, retryAfterSeconds);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        body.put("error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase());
+        body.put("message", "Too many requests, please retry in " + retryAfterSeconds + " seconds");
+        body.put("path", request.getRequestURI());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+        return false;
+    }
+
+    // The subject of a bearer token that passed the verified token cache, so a forged token cannot
+    // drain the bucket of the user it names; anything else is limited by IP only
+    private String principal(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            Claims claims = verifiedTokenCache.getClaims(header.substring(BEARER_PREFIX.length()));
+            if (claims != null && claims.getSubject() != null) {
+                return "user:" + claims.getSubject();
+            }
+        }
+        return null;
+    }
+
+    // Top-level "username" of a JSON body, read with the streaming parser; null when absent or not JSON
+    private String readUsername(byte[] body) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("username".equals(field) && value == JsonToken.VALUE_STRING) {
+                    String username = parser.getText().trim();
+                    return username.isEmpty() ? null : username;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            log.debug("Could not read a username from the request body: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static final class Route {
+
+        private final String name;
+
+        private final List<PathPattern> paths;
+
+        private final List<String> methods;
+
+        private final ClientKey clientKey;
+
+        private final Limit perIp;
+
+        private final Limit perClient;
+
+        private final Counter ipRejected;
+
+        private final Counter clientRejected;
+
+        Route(String name, RateLimitProperties.Route properties, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.paths = properties.getPaths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+            this.methods = properties.getMethods().stream().map(method -> method.toUpperCase(Locale.ROOT)).toList();
+            this.clientKey = properties.getClientKey();
+            this.perIp = properties.getPerIp();
+            this.perClient = properties.getPerClient();
+            this.ipRejected = rejectedCounter(meterRegistry, "ip");
+            this.clientRejected = rejectedCounter(meterRegistry, "client");
+        }
+
+        boolean matches(String method, PathContainer path) {
+            if (!methods.isEmpty() && !methods.contains(method)) {
+                return false;
+            }
+            for (PathPattern pattern : paths) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Counter rejected(String keyType) {
+            return "ip".equals(keyType) ? ipRejected : clientRejected;
+        }
+
+        private Counter rejectedCounter(MeterRegistry meterRegistry, String keyType) {
+            return Counter.builder("rate.limit.rejected")
+                    .tag("route", name)
+                    .tag("key", keyType)
+                    .register(meterRegistry);
+        }
+    }
+
+    // Reads up to maxBytes of the body ahead of the controller and replays them, followed by whatever
+    // was not read, so the body can be inspected without being consumed
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] prefix;
+
+        private final boolean complete;
+
+        private final ServletInputStream inputStream;
+
+        BufferedBodyRequest(HttpServletRequest request, int maxBytes) throws IOException {
+            super(request);
+            ServletInputStream original = request.getInputStream();
+            this.prefix = original.readNBytes(maxBytes + 1);
+            this.complete = prefix.length <= maxBytes;
+            this.inputStream = new ReplayInputStream(new ByteArrayInputStream(prefix), original);
+        }
+
+        byte[] getPrefix() {
+            return prefix;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(inputStream, charset));
+        }
+    }
+
+    // The buffered prefix first, then the original stream; readiness and read listeners are the
+    // original's once the prefix is used up
+    private static final class ReplayInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream prefix;
+
+        private final ServletInputStream original;
+
+        ReplayInputStream(ByteArrayInputStream prefix, ServletInputStream original) {
+            this.prefix = prefix;
+            this.original = original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return prefix.available() > 0 ? prefix.read() : original.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            return prefix.available() > 0 ? prefix.read(buffer, offset, length) : original.read(buffer, offset, length);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return prefix.available() == 0 && original.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return prefix.available() > 0 || original.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            // The original may already be finished, all of it sitting in the prefix: the listener
+            // still gets to read the prefix before it is told that all data has been read
+            original.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    readListener.onDataAvailable();
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    if (prefix.available() > 0) {
+                        readListener.onDataAvailable();
+                    }
+                    readListener.onAllDataRead();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    readListener.onError(t);
+                }
+            });
+        }
+    }
+}
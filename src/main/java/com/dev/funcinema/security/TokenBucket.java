@@ -0,0 +1,37 @@
+package com.dev.funcinema.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket kept as a single timestamp: the time at which the bucket would be full again.
+// Taking a token moves that time forward by one refill interval, and a request is refused when
+// the bucket would have to be overdrawn. One compare-and-set per request, no lock and no
+// background refill (the "virtual scheduling" form of the generic cell rate algorithm).
+final class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final AtomicLong fullAt;
+
+    TokenBucket(int capacity, long periodNanos, long now) {
+        this.intervalNanos = Math.max(1, periodNanos / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    // Returns 0 when a token was taken, otherwise the nanoseconds until one is available
+    long tryConsume(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long overdraw = next - now - burstNanos;
+            if (overdraw > 0) {
+                return overdraw;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.dev.funcinema.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Revoked login sessions (the sid claim of access and refresh tokens), checked on every request.
+// A Bloom filter answers first, so a token of a live session costs a few hashes and no lookup;
+// only filter hits go to the exact map. An entry lives until every access token of its session
+// has expired. A Bloom filter cannot forget, so sweeps rebuild it from the remaining entries.
+@Component
+public class TokenRevocationList {
+
+    private final Map<String, Long> revokedUntil = new ConcurrentHashMap<>();
+
+    private final int expectedEntries;
+
+    private final double falsePositiveRate;
+
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+
+    public TokenRevocationList(MeterRegistry meterRegistry,
+                               @Value("${jwt.revocation.expected-entries:100000}") int expectedEntries,
+                               @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+
+        Gauge.builder("token.revocation.size", revokedUntil, Map::size)
+                .description("Revoked sessions whose access tokens may still be presented")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("token.revocation.false-positives")
+                .description("Filter hits for sessions that are not revoked")
+                .register(meterRegistry);
+    }
+
+    // Revocations are rare, so they are serialized with the rebuild instead of racing it
+    public synchronized void revoke(String sessionId, long untilEpochMillis) {
+        revokedUntil.merge(sessionId, untilEpochMillis, Math::max);
+        filter.add(sessionId);
+    }
+
+    public boolean isRevoked(String sessionId) {
+        if (sessionId == null || !filter.mightContain(sessionId)) {
+            return false;
+        }
+        Long until = revokedUntil.get(sessionId);
+        if (until == null) {
+            falsePositives.increment();
+            return false;
+        }
+        return until >= System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sweep-interval:60000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        if (!revokedUntil.values().removeIf(until -> until < now)) {
+            return;
+        }
+        // Sized for the entries still present, so a burst of revocations cannot saturate the filter
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revokedUntil.size() * 2), falsePositiveRate);
+        revokedUntil.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    // Classic Bloom filter with double hashing; the bit array is safe for concurrent readers and writers
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) >>> 6));
+            this.bitCount = (long) bits.length() << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = bits.get(index);
+                } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the characters, finished with the MurmurHash3 mixer to spread both halves
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.dev.funcinema.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Claims of bearer tokens whose signature was already verified, keyed by a SHA-256 digest of the token.
+// An entry never outlives the token's own expiry, so a cached token cannot be accepted after it expires.
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtils jwtUtils;
+
+    private final Cache<String, Claims> cache;
+
+    public VerifiedTokenCache(JwtUtils jwtUtils,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${jwt.cache.max-ttl:300000}") long maxTtlMs) {
+        this.jwtUtils = jwtUtils;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry(Duration.ofMillis(maxTtlMs).toNanos()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+    }
+
+    // Returns the claims of a valid token, verifying the signature only on a cache miss
+    public Claims getClaims(String token) {
+        String digest = digest(token);
+        Claims claims = cache.getIfPresent(digest);
+        if (claims != null && isUnexpired(claims)) {
+            return claims;
+        }
+
+        claims = jwtUtils.parseClaims(token);
+        if (claims != null && claims.getExpiration() != null) {
+            cache.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(digest(token));
+    }
+
+    private static boolean isUnexpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.after(new Date());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record UntilTokenExpiry(long maxTtlNanos) implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long untilExpiry = Duration.ofMillis(claims.getExpiration().getTime() - System.currentTimeMillis()).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTtlNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
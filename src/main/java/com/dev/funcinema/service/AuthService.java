@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +15,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.dev.funcinema.dto.AuthResponse;
 import com.dev.funcinema.dto.LoginRequest;
@@ -28,6 +30,7 @@ import com.dev.funcinema.repository.RoleRepository;
 import com.dev.funcinema.repository.UserRepository;
 import com.dev.funcinema.security.JwtUtils;
 import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.RefreshTokenService.IssuedTokens;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -48,8 +51,50 @@ public class AuthService {
 
     private final VerificationService verificationService;
 
-    @Transactional
+    private final RefreshTokenService refreshTokenService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    // BCrypt runs before any transaction is opened, so no connection waits on the hash; only the
+    // uniqueness checks, the insert and the verification codes share the one short transaction
     public User registerUser(RegisterRequest registerRequest) {
+        return register(registerRequest, false);
+    }
+
+    @Async("virtualThreadTaskExecutor")
+    public CompletableFuture<User> registerUserAsync(RegisterRequest registerRequest) {
+        return CompletableFuture.completedFuture(register(registerRequest, true));
+    }
+
+    // The password is verified by the authentication manager after a short lookup transaction of its
+    // own, and the session and last login are written once it has passed
+    public AuthResponse authenticateUser(LoginRequest loginRequest) {
+        return authenticate(loginRequest, false);
+    }
+
+    @Async("virtualThreadTaskExecutor")
+    public CompletableFuture<AuthResponse> authenticateUserAsync(LoginRequest loginRequest) {
+        return CompletableFuture.completedFuture(authenticate(loginRequest, true));
+    }
+
+    // Rotates the refresh token: the presented one is consumed and a new pair is issued
+    public AuthResponse refreshToken(String refreshToken) {
+        return toAuthResponse(refreshTokenService.rotate(refreshToken));
+    }
+
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+        log.info("User logged out successfully");
+    }
+
+    private User register(RegisterRequest registerRequest, boolean admit) {
+        String encodedPassword = passwordEncoder.encode(registerRequest.getPassword());
+        return inTransaction(admit, status -> saveNewUser(registerRequest, encodedPassword));
+    }
+
+    private User saveNewUser(RegisterRequest registerRequest, String encodedPassword) {
         // Check if username, email, or mobile number already exists
         if (userRepository.existsByUsername(registerRequest.getUsername())) {
             throw new ResourceAlreadyExistsException("Username is already taken");
@@ -66,7 +111,7 @@ public class AuthService {
         // Create new user
         User user = User.builder()
                 .username(registerRequest.getUsername())
-                .password(passwordEncoder.encode(registerRequest.getPassword()))
+                .password(encodedPassword)
                 .email(registerRequest.getEmail())
                 .mobileNumber(registerRequest.getMobileNumber())
                 .fullName(registerRequest.getFullName())
@@ -87,21 +132,13 @@ public class AuthService {
         // Save user
         User savedUser = userRepository.save(user);
 
-        // Send verification emails and SMS
-        verificationService.sendEmailVerification(savedUser);
-        verificationService.sendMobileVerification(savedUser);
+        // Issue both verification codes in this transaction; the email and SMS go out after it commits
+        verificationService.sendVerifications(savedUser);
 
         return savedUser;
     }
 
-    @Async("virtualThreadTaskExecutor")
-    @Transactional
-    public CompletableFuture<User> registerUserAsync(RegisterRequest registerRequest) {
-        return CompletableFuture.completedFuture(registerUser(registerRequest));
-    }
-
-    @Transactional
-    public AuthResponse authenticateUser(LoginRequest loginRequest) {
+    private AuthResponse authenticate(LoginRequest loginRequest, boolean admit) {
         // Authenticate user
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -121,19 +158,32 @@ public class AuthService {
             throw new UnverifiedAccountException("Mobile number needs to be verified");
         }
 
-        // Generate JWT token
-        String jwt = jwtUtils.generateJwtToken(authentication);
-        String refreshToken = jwtUtils.generateRefreshToken(userDetails.getUsername());
+        return toAuthResponse(inTransaction(admit, status -> {
+            // Generate JWT tokens for a new session
+            IssuedTokens tokens = refreshTokenService.startSession(userDetails);
 
-        // Update last login
-        User user = userRepository.findByUsername(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found with username: " + userDetails.getUsername()));
-        user.setLastLoginAt(LocalDateTime.now());
-        userRepository.save(user);
+            // Update last login
+            User user = userRepository.findByUsername(userDetails.getUsername())
+                    .orElseThrow(() -> new RuntimeException("User not found with username: " + userDetails.getUsername()));
+            user.setLastLoginAt(LocalDateTime.now());
+            userRepository.save(user);
 
+            return tokens;
+        }));
+    }
+
+    // The async variants wait for a database permit before their transaction, as the @Async
+    // @Transactional methods did; synchronous requests use the connections the limiter keeps back
+    private <T> T inTransaction(boolean admit, TransactionCallback<T> callback) {
+        Supplier<T> transaction = () -> transactionTemplate.execute(callback);
+        return admit ? databaseConcurrencyLimiter.call(transaction) : transaction.get();
+    }
+
+    private AuthResponse toAuthResponse(IssuedTokens tokens) {
+        UserDetailsImpl userDetails = tokens.user();
         return AuthResponse.builder()
-                .token(jwt)
-                .refreshToken(refreshToken)
+                .token(tokens.accessToken())
+                .refreshToken(tokens.refreshToken())
                 .tokenType("Bearer")
                 .expiresIn(jwtUtils.getExpirationTime())
                 .username(userDetails.getUsername())
@@ -141,27 +191,4 @@ public class AuthService {
                 .mobileVerified(userDetails.isMobileVerified())
                 .build();
     }
-
-    @Async("virtualThreadTaskExecutor")
-    @Transactional
-    public CompletableFuture<AuthResponse> authenticateUserAsync(LoginRequest loginRequest) {
-        return CompletableFuture.completedFuture(authenticateUser(loginRequest));
-    }
-
-    @Transactional
-    public String refreshToken(String refreshToken) {
-        if (!jwtUtils.validateJwtToken(refreshToken)) {
-            throw new RuntimeException("Invalid refresh token");
-        }
-
-        String username = jwtUtils.getUserNameFromJwtToken(refreshToken);
-        return jwtUtils.generateJwtToken(SecurityContextHolder.getContext().getAuthentication());
-    }
-
-    @Transactional
-    public void logout(String refreshToken) {
-        // In a stateless JWT-based authentication, we don't need to do anything on the server side
-        // The client should discard the tokens
-        log.info("User logged out successfully");
-    }
 }
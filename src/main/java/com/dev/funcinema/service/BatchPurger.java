@@ -0,0 +1,129 @@
+package com.dev.funcinema.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Deletes stale rows in bounded batches, each an index range delete in its own short transaction.
+// Before every batch it checks the connection pool and yields the rest of the run when requests are
+// waiting for a connection or the pool is busier than purge.max-pool-utilization.
+// Rows removed, run time and throttled runs are published as purge.* meters tagged with the table.
+@Slf4j
+@Component
+public class BatchPurger {
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final HikariPoolMXBean pool;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int batchSize;
+
+    private final long pauseMs;
+
+    private final double maxPoolUtilization;
+
+    public BatchPurger(PlatformTransactionManager transactionManager,
+                       DataSource dataSource,
+                       MeterRegistry meterRegistry,
+                       @Value("${purge.batch-size:1000}") int batchSize,
+                       @Value("${purge.pause:100}") long pauseMs,
+                       @Value("${purge.max-pool-utilization:0.75}") double maxPoolUtilization) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pool = dataSource instanceof HikariDataSource hikari ? hikari.getHikariPoolMXBean() : null;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.maxPoolUtilization = maxPoolUtilization;
+    }
+
+    // Runs the steps in order, each until a batch comes back short; stops altogether when throttled.
+    // A step deletes at most the given number of rows and returns how many it deleted.
+    public Map<String, Integer> purge(String table, Map<String, IntUnaryOperator> steps) {
+        long start = System.nanoTime();
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        boolean throttled = false;
+        for (Map.Entry<String, IntUnaryOperator> step : steps.entrySet()) {
+            Step result = purge(table, step.getKey(), step.getValue());
+            removed.put(step.getKey(), result.rows());
+            if (result.throttled()) {
+                throttled = true;
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        meterRegistry.timer("purge.duration", "table", table).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (throttled) {
+            meterRegistry.counter("purge.throttled", "table", table).increment();
+        }
+        if (throttled || removed.values().stream().anyMatch(rows -> rows > 0)) {
+            log.info("Purged {} from {} in {} ms{}", removed, table, elapsedNanos / 1_000_000,
+                    throttled ? ", stopped early because the connection pool is busy" : "");
+        }
+        return removed;
+    }
+
+    private Step purge(String table, String reason, IntUnaryOperator deleteBatch) {
+        int total = 0;
+        try {
+            while (true) {
+                if (poolIsBusy()) {
+                    return new Step(total, true);
+                }
+                Integer deleted = transactionTemplate.execute(status -> deleteBatch.applyAsInt(batchSize));
+                int rows = deleted == null ? 0 : deleted;
+                total += rows;
+                meterRegistry.counter("purge.rows", "table", table, "reason", reason).increment(rows);
+                if (rows < batchSize) {
+                    return new Step(total, false);
+                }
+                if (!pause()) {
+                    return new Step(total, true);
+                }
+            }
+        } catch (DataAccessException e) {
+            // Committed batches stay deleted, the next run picks up the rest
+            log.warn("Purge of {} stopped after {} rows: {}", table, total, e.getMessage());
+            return new Step(total, true);
+        }
+    }
+
+    private boolean poolIsBusy() {
+        if (pool == null) {
+            return false;
+        }
+        int total = pool.getTotalConnections();
+        return pool.getThreadsAwaitingConnection() > 0
+                || (total > 0 && pool.getActiveConnections() >= total * maxPoolUtilization);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Step(int rows, boolean throttled) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.dev.funcinema.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.dev.funcinema.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Admits at most as many transactional tasks as there are pooled connections to spare. Waiters queue
+// in arrival order on a fair semaphore, and one that cannot start within the deadline is shed with
+// ServiceOverloadedException (503 + Retry-After) before it opens a transaction, instead of every
+// waiter timing out on the connection pool together. Wait times are recorded as database.limiter.wait.
+@Slf4j
+public class DatabaseConcurrencyLimiter implements MethodInterceptor, MeterBinder {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrency;
+
+    private final long maxWaitMs;
+
+    private final long retryAfterSeconds;
+
+    private volatile Timer acquiredTimer;
+    private volatile Timer rejectedTimer;
+    private volatile Counter rejectedCounter;
+
+    public DatabaseConcurrencyLimiter(int maxConcurrency, long maxWaitMs, long retryAfterSeconds) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("The database limiter needs at least one permit");
+        }
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        log.info("Database limiter admits {} concurrent transactional tasks, waiting up to {} ms", maxConcurrency, maxWaitMs);
+    }
+
+    // Around @Async @Transactional methods, outside the transaction interceptor
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Called from inside a transaction that already holds a connection
+            return invocation.proceed();
+        }
+        acquire();
+        try {
+            return invocation.proceed();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // For transactions opened programmatically, e.g. with a TransactionTemplate
+    public <T> T call(Supplier<T> transaction) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transaction.get();
+        }
+        acquire();
+        try {
+            return transaction.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            // The timed tryAcquire honours the fair ordering, the untimed one would barge
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database connection", e);
+        }
+        long waitedNanos = System.nanoTime() - start;
+
+        if (acquired) {
+            record(acquiredTimer, waitedNanos);
+            return;
+        }
+        record(rejectedTimer, waitedNanos);
+        if (rejectedCounter != null) {
+            rejectedCounter.increment();
+        }
+        throw new ServiceOverloadedException("Too many requests waiting for the database, please retry later",
+                retryAfterSeconds);
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        acquiredTimer = Timer.builder("database.limiter.wait")
+                .tag("outcome", "acquired")
+                .description("Time spent waiting for a database permit")
+                .publishPercentileHistogram()
+                .register(registry);
+        rejectedTimer = Timer.builder("database.limiter.wait")
+                .tag("outcome", "rejected")
+                .description("Time spent waiting for a database permit")
+                .publishPercentileHistogram()
+                .register(registry);
+        rejectedCounter = Counter.builder("database.limiter.rejected")
+                .register(registry);
+        Gauge.builder("database.limiter.active", this, DatabaseConcurrencyLimiter::getActiveCount)
+                .register(registry);
+        Gauge.builder("database.limiter.queued", this, DatabaseConcurrencyLimiter::getQueuedCount)
+                .register(registry);
+        Gauge.builder("database.limiter.permits", this, limiter -> limiter.maxConcurrency)
+                .register(registry);
+    }
+}
@@ -0,0 +1,83 @@
+package com.dev.funcinema.service;
+
+import com.dev.funcinema.model.EmailOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Drains the email outbox in the background. Each batch goes out over a single SMTP connection,
+// since JavaMailSender.send(SimpleMailMessage...) reuses one transport for all messages it is given.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxService emailOutboxService;
+
+    private final JavaMailSender mailSender;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval:1000}")
+    public void dispatch() {
+        List<EmailOutbox> batch;
+        // Keep draining while batches come back full
+        do {
+            batch = emailOutboxService.claimDueBatch(batchSize);
+            if (!batch.isEmpty()) {
+                sendBatch(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void sendBatch(List<EmailOutbox> batch) {
+        Map<SimpleMailMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            messages.put(message, email);
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(messages.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            // Holds only the messages that did not go out, keyed by the original message
+            failures.putAll(e.getFailedMessages());
+            if (failures.isEmpty()) {
+                messages.keySet().forEach(message -> failures.put(message, e));
+            }
+        } catch (MailException e) {
+            messages.keySet().forEach(message -> failures.put(message, e));
+        }
+
+        List<Long> sent = new ArrayList<>();
+        messages.forEach((message, email) -> {
+            Exception failure = failures.get(message);
+            if (failure == null) {
+                sent.add(email.getId());
+            } else {
+                log.warn("Failed to send email {} to {} (attempt {}): {}",
+                        email.getId(), email.getRecipient(), email.getAttempts(), failure.getMessage());
+                emailOutboxService.markFailed(email.getId(), failure.getMessage());
+            }
+        });
+        emailOutboxService.markSent(sent);
+
+        log.info("Email outbox batch: {} sent, {} failed", sent.size(), batch.size() - sent.size());
+    }
+}
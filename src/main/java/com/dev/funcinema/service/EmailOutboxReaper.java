@@ -0,0 +1,49 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import com.dev.funcinema.repository.EmailOutboxRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Purges delivered emails, and emails given up on after email.outbox.max-attempts, once their
+// retention has passed. Outbox bodies contain verification codes, so they must not pile up.
+@Component
+public class EmailOutboxReaper {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    private final BatchPurger batchPurger;
+
+    private final Duration sentRetention;
+
+    private final Duration failedRetention;
+
+    public EmailOutboxReaper(EmailOutboxRepository emailOutboxRepository,
+                             BatchPurger batchPurger,
+                             @Value("${email.outbox.sent-retention:86400000}") long sentRetentionMs,
+                             @Value("${email.outbox.failed-retention:604800000}") long failedRetentionMs) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.batchPurger = batchPurger;
+        this.sentRetention = Duration.ofMillis(sentRetentionMs);
+        this.failedRetention = Duration.ofMillis(failedRetentionMs);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.purge-interval:3600000}",
+            initialDelayString = "${email.outbox.purge-interval:3600000}")
+    public void reap() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime sentBefore = now.minus(sentRetention);
+        LocalDateTime failedBefore = now.minus(failedRetention);
+        Map<String, IntUnaryOperator> steps = new LinkedHashMap<>();
+        steps.put("sent", limit -> emailOutboxRepository.deleteSentBatch(sentBefore, limit));
+        steps.put("failed", limit -> emailOutboxRepository.deleteFailedBatch(failedBefore, limit));
+        batchPurger.purge("email_outbox", steps);
+    }
+}
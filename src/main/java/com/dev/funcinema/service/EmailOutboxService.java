@@ -0,0 +1,92 @@
+package com.dev.funcinema.service;
+
+import com.dev.funcinema.model.EmailOutbox;
+import com.dev.funcinema.model.EmailOutbox.OutboxStatus;
+import com.dev.funcinema.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Slf4j
+@Service
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    private final long leaseMs;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMs;
+
+    private final long maxBackoffMs;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository,
+                              @Value("${email.outbox.lease:60000}") long leaseMs,
+                              @Value("${email.outbox.max-attempts:5}") int maxAttempts,
+                              @Value("${email.outbox.initial-backoff:5000}") long initialBackoffMs,
+                              @Value("${email.outbox.max-backoff:300000}") long maxBackoffMs) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    // Joins the caller's transaction, so the email exists only if the caller's data commits
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String recipient, String subject, String body) {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .status(OutboxStatus.PENDING)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    // Claims due emails by pushing their next attempt out by the lease. If the dispatcher dies
+    // before reporting back, the lease runs out and another pass delivers them again.
+    @Transactional
+    public List<EmailOutbox> claimDueBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> batch = emailOutboxRepository.lockDueBatch(now, batchSize);
+        for (EmailOutbox email : batch) {
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptAt(now.plus(Duration.ofMillis(leaseMs)));
+        }
+        return batch;
+    }
+
+    @Transactional
+    public void markSent(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            emailOutboxRepository.markSent(ids, LocalDateTime.now());
+        }
+    }
+
+    // Exponential backoff between attempts, giving up after email.outbox.max-attempts
+    @Transactional
+    public void markFailed(Long id, String error) {
+        emailOutboxRepository.findById(id).ifPresent(email -> {
+            email.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (email.getAttempts() >= maxAttempts) {
+                email.setStatus(OutboxStatus.FAILED);
+                log.error("Giving up on email {} to {} after {} attempts: {}",
+                        id, email.getRecipient(), email.getAttempts(), error);
+            } else {
+                long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(email.getAttempts() - 1, 20));
+                email.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMs)));
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.dev.funcinema.repository.PurchaseRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// Answers "does user X own movie Y" from a per-user set of completed purchase movie ids.
+// A user's set is loaded with one id-only query on first use and patched when a purchase completes.
+// The sets are per instance and only serve reads; PurchaseService checks the database before charging.
+// A set is dropped max-staleness after it was loaded, local grants included, so purchases completed on
+// another instance are seen within that bound.
+@Service
+public class EntitlementService {
+
+    private final PurchaseRepository purchaseRepository;
+
+    private final Cache<Long, OwnedMovieIds> ownedMovies;
+
+    public EntitlementService(PurchaseRepository purchaseRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${purchase.entitlements.maximum-size:100000}") long maximumSize,
+                              @Value("${purchase.entitlements.max-staleness:60000}") long maxStalenessMs) {
+        this.purchaseRepository = purchaseRepository;
+        this.ownedMovies = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new SinceLoad(Duration.ofMillis(maxStalenessMs).toNanos()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, ownedMovies, "entitlements");
+    }
+
+    public boolean ownsMovie(Long userId, Long movieId) {
+        return movieId != null && ownedMovies(userId).contains(movieId);
+    }
+
+    // Called inside the transaction that completes a purchase; the grant is visible once it commits
+    public void grantAfterCommit(Long userId, Long movieId) {
+        TransactionCallbacks.afterCommit(
+                () -> ownedMovies.asMap().computeIfPresent(userId, (id, owned) -> owned.with(movieId)));
+    }
+
+    private OwnedMovieIds ownedMovies(Long userId) {
+        // A grant for a user whose set is loading waits for the load and is applied on top of it
+        return ownedMovies.get(userId, id -> {
+            List<Long> movieIds = purchaseRepository.findMovieIdsByUserIdAndStatus(id, PurchaseStatus.COMPLETED);
+            return movieIds.isEmpty() ? OwnedMovieIds.EMPTY : OwnedMovieIds.of(movieIds);
+        });
+    }
+
+    // Neither reads nor grants extend a set's life: a busy user's set would otherwise never be reloaded
+    private record SinceLoad(long maxStalenessNanos) implements Expiry<Long, OwnedMovieIds> {
+
+        @Override
+        public long expireAfterCreate(Long userId, OwnedMovieIds owned, long currentTime) {
+            return maxStalenessNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long userId, OwnedMovieIds owned, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(Long userId, OwnedMovieIds owned, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.dev.funcinema.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.dev.funcinema.model.Verification.VerificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Codes in a concurrent map, one per user and type, so issuing and verifying touch no database.
+// Expired codes are evicted by a hashed timing wheel: each code is also filed in the bucket of the
+// tick it expires in, and every tick clears one bucket, so eviction costs nothing per lookup and
+// never scans the whole map. Codes live in this instance only; run with otp.store=jpa when a code
+// may be verified on a different instance than the one that issued it.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private final ConcurrentHashMap<OtpKey, Otp> codes = new ConcurrentHashMap<>();
+
+    private final Queue<Otp>[] wheel;
+
+    private final int mask;
+
+    private final long tickNanos;
+
+    private final long startNanos = System.nanoTime();
+
+    // Next tick whose bucket has not been cleared yet; advanced by the scheduler thread only
+    private volatile long nextTick;
+
+    private final Counter expiredCounter;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryOtpStore(MeterRegistry meterRegistry,
+                            @Value("${otp.memory.tick:1000}") long tickMs,
+                            @Value("${otp.memory.wheel-size:512}") int wheelSize) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("otp.memory.tick and otp.memory.wheel-size must be positive");
+        }
+        // A power of two, so the bucket of a tick is a mask instead of a division
+        int buckets = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Queue[Math.max(buckets, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = wheel.length - 1;
+        this.tickNanos = Duration.ofMillis(tickMs).toNanos();
+
+        Gauge.builder("otp.store.size", codes, ConcurrentHashMap::size)
+                .description("Issued codes not yet used or evicted")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("otp.store.expired")
+                .description("Codes evicted unused after expiring")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void issue(Long userId, VerificationType type, String code, Duration ttl) {
+        OtpKey key = new OtpKey(userId, type);
+        Otp otp = new Otp(key, code, System.nanoTime() + ttl.toNanos());
+        // The previous code, if any, stays in its bucket until that tick drops it
+        codes.put(key, otp);
+
+        // The first tick at or after the deadline, but never one whose bucket is already being cleared
+        long tick = Math.max(ceilDiv(otp.deadlineNanos() - startNanos, tickNanos), nextTick + 1);
+        wheel[(int) (tick & mask)].add(otp);
+    }
+
+    @Override
+    public Result verify(Long userId, VerificationType type, String code) {
+        OtpKey key = new OtpKey(userId, type);
+        Otp otp = codes.get(key);
+        if (otp == null || !MessageDigest.isEqual(otp.code().getBytes(StandardCharsets.UTF_8),
+                code == null ? new byte[0] : code.getBytes(StandardCharsets.UTF_8))) {
+            return Result.INVALID;
+        }
+
+        if (otp.isExpired(System.nanoTime())) {
+            codes.remove(key, otp);
+            return Result.EXPIRED;
+        }
+
+        // Only one of two concurrent verifications of the same code can remove it
+        return codes.remove(key, otp) ? Result.VALID : Result.INVALID;
+    }
+
+    // Clears the buckets of every tick that has passed since the last run
+    @Scheduled(fixedRateString = "${otp.memory.tick:1000}")
+    public void advance() {
+        long now = System.nanoTime();
+        long currentTick = (now - startNanos) / tickNanos;
+        // After a long pause one revolution visits every bucket once
+        long from = Math.max(nextTick, currentTick - mask);
+        int evicted = 0;
+        for (long tick = from; tick <= currentTick; tick++) {
+            evicted += clearBucket(wheel[(int) (tick & mask)], now);
+        }
+        nextTick = currentTick + 1;
+
+        if (evicted > 0) {
+            expiredCounter.increment(evicted);
+            log.debug("Evicted {} expired one-time codes", evicted);
+        }
+    }
+
+    int size() {
+        return codes.size();
+    }
+
+    private int clearBucket(Queue<Otp> bucket, long now) {
+        int evicted = 0;
+        for (Iterator<Otp> iterator = bucket.iterator(); iterator.hasNext(); ) {
+            Otp otp = iterator.next();
+            if (codes.get(otp.key()) != otp) {
+                // Used or replaced meanwhile
+                iterator.remove();
+            } else if (otp.isExpired(now)) {
+                iterator.remove();
+                if (codes.remove(otp.key(), otp)) {
+                    evicted++;
+                }
+            }
+            // Otherwise it expires in a later revolution of the wheel and stays
+        }
+        return evicted;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private record OtpKey(Long userId, VerificationType type) {
+    }
+
+    private record Otp(OtpKey key, String code, long deadlineNanos) {
+
+        boolean isExpired(long now) {
+            return now - deadlineNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.model.Verification;
+import com.dev.funcinema.model.Verification.VerificationType;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.repository.VerificationRepository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+// Codes in the verifications table, shared by every instance of the application. Each issue costs a
+// delete and a batched insert, whatever the number of types, and each verification a lookup and an update.
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "otp.store", havingValue = "jpa")
+public class JpaOtpStore implements OtpStore {
+
+    private final VerificationRepository verificationRepository;
+
+    private final UserRepository userRepository;
+
+    @Override
+    @Transactional
+    public void issue(Long userId, VerificationType type, String code, Duration ttl) {
+        issueAll(userId, Map.of(type, code), ttl);
+    }
+
+    // One delete for every type, then the new codes as a single JDBC batch
+    @Override
+    @Transactional
+    public void issueAll(Long userId, Map<VerificationType, String> codes, Duration ttl) {
+        User user = userRepository.getReferenceById(userId);
+
+        // Delete any existing unverified codes
+        verificationRepository.deleteByUserIdAndTypeIn(userId, codes.keySet());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Verification> verifications = new ArrayList<>(codes.size());
+        codes.forEach((type, code) -> verifications.add(Verification.builder()
+                .user(user)
+                .code(code)
+                .type(type)
+                .expiresAt(now.plus(ttl))
+                .used(false)
+                .createdAt(now)
+                .build()));
+        verificationRepository.saveAll(verifications);
+    }
+
+    @Override
+    @Transactional
+    public Result verify(Long userId, VerificationType type, String code) {
+        Verification verification = verificationRepository
+                .findByUserAndTypeAndCodeAndUsedFalse(userRepository.getReferenceById(userId), type, code)
+                .orElse(null);
+        if (verification == null) {
+            return Result.INVALID;
+        }
+
+        if (verification.isExpired()) {
+            verificationRepository.delete(verification);
+            return Result.EXPIRED;
+        }
+
+        // Mark as used
+        verification.setUsed(true);
+        verificationRepository.save(verification);
+        return Result.VALID;
+    }
+}
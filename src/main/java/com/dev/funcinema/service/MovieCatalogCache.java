@@ -0,0 +1,77 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.dev.funcinema.dto.MovieDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Bounded read-through cache of movie details keyed by movie id.
+// Hit, miss and eviction counters are published as cache.* meters tagged cache=movies.
+@Component
+public class MovieCatalogCache {
+
+    static final String CACHE_NAME = "movies";
+
+    private final Cache<Long, MovieDTO> cache;
+
+    public MovieCatalogCache(MeterRegistry meterRegistry,
+                             @Value("${movie.cache.maximum-size:10000}") long maximumSize,
+                             @Value("${movie.cache.expire-after-write:600000}") long expireAfterWriteMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public MovieDTO get(Long id, Function<Long, MovieDTO> loader) {
+        // The loader runs at most once per id while other readers of the same id wait for it
+        return copyOf(cache.get(id, key -> copyOf(loader.apply(key))));
+    }
+
+    public Optional<MovieDTO> getIfPresent(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id)).map(MovieCatalogCache::copyOf);
+    }
+
+    public void put(Long id, MovieDTO movieDTO) {
+        cache.put(id, copyOf(movieDTO));
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+
+        // Evict again once the writing transaction commits, so a reader that loaded
+        // the old row before the commit cannot leave a stale entry behind
+        TransactionCallbacks.afterCompletion(() -> cache.invalidate(id));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Cached DTOs are mutable, so never hand out or keep the caller's instance
+    private static MovieDTO copyOf(MovieDTO movieDTO) {
+        if (movieDTO == null) {
+            return null;
+        }
+        return movieDTO.toBuilder()
+                .genres(movieDTO.getGenres() == null ? new HashSet<>() : new HashSet<>(movieDTO.getGenres()))
+                .build();
+    }
+}
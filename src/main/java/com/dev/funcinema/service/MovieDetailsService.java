@@ -0,0 +1,152 @@
+package com.dev.funcinema.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeoutException;
+
+import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.dto.MovieDetailsDTO;
+import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.exception.ServiceOverloadedException;
+import com.dev.funcinema.security.UserDetailsImpl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Builds a movie page in one call. The movie, the current user's ownership and related titles are
+// looked up in parallel on virtual threads inside a StructuredTaskScope, each with its own deadline,
+// so the page takes as long as the slowest lookup. The movie is required: when it fails the scope
+// shuts down and cancels the other lookups. Ownership and related titles are optional and come back
+// as null, listed under "unavailable", when their lookup fails or times out.
+@Slf4j
+@Service
+public class MovieDetailsService {
+
+    private final MovieService movieService;
+
+    private final EntitlementService entitlementService;
+
+    private final long subtaskTimeoutMs;
+
+    private final int relatedLimit;
+
+    public MovieDetailsService(MovieService movieService,
+                               EntitlementService entitlementService,
+                               @Value("${movie.details.subtask-timeout:1000}") long subtaskTimeoutMs,
+                               @Value("${movie.details.related-limit:10}") int relatedLimit) {
+        this.movieService = movieService;
+        this.entitlementService = entitlementService;
+        this.subtaskTimeoutMs = subtaskTimeoutMs;
+        this.relatedLimit = relatedLimit;
+    }
+
+    public MovieDetailsDTO getMovieDetails(Long id) {
+        // Forked threads do not inherit the security context, read the user here
+        Long userId = currentUserId();
+
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            // Related titles need the movie's genres; their subtask waits for the movie subtask's result
+            CompletableFuture<MovieDTO> loaded = new CompletableFuture<>();
+            Subtask<MovieDTO> movie = scope.fork(() -> {
+                try {
+                    MovieDTO dto = withTimeout(() -> movieService.getMovieById(id));
+                    loaded.complete(dto);
+                    return dto;
+                } catch (Exception e) {
+                    loaded.completeExceptionally(e);
+                    throw e;
+                }
+            });
+            Subtask<Boolean> owned = scope.fork(() -> userId == null ? null
+                    : optional("owned", () -> entitlementService.ownsMovie(userId, id)));
+            Subtask<List<MovieDTO>> related = scope.fork(() -> optional("relatedMovies", () -> findRelated(loaded.get())));
+
+            scope.join().throwIfFailed(MovieDetailsService::toRuntimeException);
+
+            MovieDetailsDTO details = MovieDetailsDTO.builder()
+                    .movie(movie.get())
+                    .owned(owned.get())
+                    .relatedMovies(related.get())
+                    .build();
+            if (userId != null && details.getOwned() == null) {
+                details.getUnavailable().add("owned");
+            }
+            if (details.getRelatedMovies() == null) {
+                details.getUnavailable().add("relatedMovies");
+            }
+            return details;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading movie details", e);
+        }
+    }
+
+    // The deadline covers waiting for the movie as well as the search
+    private List<MovieDTO> findRelated(MovieDTO movie) {
+        if (movie.getGenres() == null || movie.getGenres().isEmpty()) {
+            return List.of();
+        }
+
+        String genre = movie.getGenres().stream().sorted().findFirst().orElseThrow();
+        MovieSearchDTO search = MovieSearchDTO.builder()
+                .genre(genre)
+                .sortBy("rating")
+                .ascending(false)
+                .size(relatedLimit + 1)
+                .build();
+        return movieService.searchMoviesByCursor(search).getContent().stream()
+                .filter(related -> !related.getId().equals(movie.getId()))
+                .limit(relatedLimit)
+                .toList();
+    }
+
+    private <T> T optional(String section, Callable<T> lookup) throws InterruptedException {
+        try {
+            return withTimeout(lookup);
+        } catch (InterruptedException e) {
+            // The scope is shutting down because the movie lookup failed
+            throw e;
+        } catch (Exception e) {
+            log.warn("Movie details section {} unavailable: {}", section, e.toString());
+            return null;
+        }
+    }
+
+    // Runs the lookup in a nested scope so it gets its own deadline. A lookup past its deadline
+    // is interrupted, and closing the scope waits for it to stop.
+    private <T> T withTimeout(Callable<T> lookup) throws InterruptedException, TimeoutException {
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            Subtask<T> subtask = scope.fork(lookup);
+            scope.joinUntil(Instant.now().plusMillis(subtaskTimeoutMs));
+            scope.throwIfFailed(MovieDetailsService::toRuntimeException);
+            return subtask.get();
+        }
+    }
+
+    private static RuntimeException toRuntimeException(Throwable error) {
+        if (error instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (error instanceof TimeoutException) {
+            return new ServiceOverloadedException("Movie lookup timed out, please retry later", 1);
+        }
+        return new IllegalStateException("Movie details lookup failed", error);
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+package com.dev.funcinema.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.dev.funcinema.dto.IngestionReportDTO;
+import com.dev.funcinema.dto.IngestionReportDTO.ChunkReport;
+import com.dev.funcinema.dto.IngestionReportDTO.RowFailure;
+import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.repository.MovieJdbcRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Bulk movie loading for distributor feeds: rows are validated one by one and
+// written in chunks, each chunk as JDBC batches in its own transaction
+@Slf4j
+@Service
+public class MovieIngestionService {
+
+    private final MovieJdbcRepository movieJdbcRepository;
+
+    private final MovieSearchIndex movieSearchIndex;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+
+    private final int maxReportedFailures;
+
+    public MovieIngestionService(MovieJdbcRepository movieJdbcRepository,
+                                 MovieSearchIndex movieSearchIndex,
+                                 Validator validator,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${movie.ingest.chunk-size:500}") int chunkSize,
+                                 @Value("${movie.ingest.max-reported-failures:1000}") int maxReportedFailures) {
+        this.movieJdbcRepository = movieJdbcRepository;
+        this.movieSearchIndex = movieSearchIndex;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    // Consumes the iterator lazily, so at most one chunk of movies is held in memory
+    public IngestionReportDTO ingest(Iterator<MovieDTO> movies) {
+        long start = System.currentTimeMillis();
+        IngestionReportDTO report = IngestionReportDTO.builder().build();
+
+        List<Movie> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkRows = new ArrayList<>(chunkSize);
+        long row = 0;
+
+        while (true) {
+            MovieDTO movieDTO;
+            try {
+                if (!movies.hasNext()) {
+                    break;
+                }
+                movieDTO = movies.next();
+            } catch (RuntimeException e) {
+                // Unreadable input cannot be resumed, keep what was read so far
+                recordFailure(report, row, null, List.of("Malformed input: " + e.getMessage()));
+                row++;
+                break;
+            }
+
+            List<String> errors = validate(movieDTO);
+            if (errors.isEmpty()) {
+                chunk.add(MovieMapper.toEntity(movieDTO));
+                chunkRows.add(row);
+            } else {
+                recordFailure(report, row, movieDTO == null ? null : movieDTO.getTitle(), errors);
+            }
+            row++;
+
+            if (chunk.size() == chunkSize) {
+                writeChunk(report, chunk, chunkRows);
+                chunk = new ArrayList<>(chunkSize);
+                chunkRows = new ArrayList<>(chunkSize);
+            }
+        }
+        writeChunk(report, chunk, chunkRows);
+
+        report.setTotalRows(row);
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("Ingested {} of {} movies in {} ms ({} failed)",
+                report.getInserted(), report.getTotalRows(), report.getElapsedMillis(), report.getFailed());
+        return report;
+    }
+
+    private void writeChunk(IngestionReportDTO report, List<Movie> chunk, List<Long> chunkRows) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int inserted;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                movieJdbcRepository.batchInsert(chunk);
+                chunk.forEach(movieSearchIndex::indexAfterCommit);
+            });
+            inserted = chunk.size();
+        } catch (DataAccessException e) {
+            // The whole batch rolled back, retry row by row to pinpoint the rejected rows
+            log.warn("Chunk {} failed as a batch, retrying row by row: {}", report.getChunks().size() + 1, e.getMessage());
+            inserted = writeRowByRow(report, chunk, chunkRows);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        ChunkReport chunkReport = ChunkReport.builder()
+                .chunk(report.getChunks().size() + 1)
+                .rows(chunk.size())
+                .inserted(inserted)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos > 0 ? inserted * 1_000_000_000.0 / elapsedNanos : 0)
+                .build();
+        report.getChunks().add(chunkReport);
+        report.setInserted(report.getInserted() + inserted);
+
+        log.info("Chunk {}: {} of {} movies in {} ms ({} rows/s)", chunkReport.getChunk(), inserted,
+                chunk.size(), chunkReport.getElapsedMillis(), Math.round(chunkReport.getRowsPerSecond()));
+    }
+
+    private int writeRowByRow(IngestionReportDTO report, List<Movie> chunk, List<Long> chunkRows) {
+        int inserted = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            Movie movie = chunk.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    movieJdbcRepository.batchInsert(List.of(movie));
+                    movieSearchIndex.indexAfterCommit(movie);
+                });
+                inserted++;
+            } catch (DataAccessException e) {
+                recordFailure(report, chunkRows.get(i), movie.getTitle(),
+                        List.of(e.getMostSpecificCause().getMessage()));
+            }
+        }
+        return inserted;
+    }
+
+    private List<String> validate(MovieDTO movieDTO) {
+        if (movieDTO == null) {
+            return List.of("Row is empty");
+        }
+        Set<ConstraintViolation<MovieDTO>> violations = validator.validate(movieDTO);
+        List<String> errors = new ArrayList<>(violations.size());
+        for (ConstraintViolation<MovieDTO> violation : violations) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+
+    private void recordFailure(IngestionReportDTO report, long row, String title, List<String> errors) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getFailures().size() < maxReportedFailures) {
+            report.getFailures().add(RowFailure.builder()
+                    .row(row)
+                    .title(title)
+                    .errors(errors)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.dev.funcinema.service;
+
+import java.util.HashSet;
+
+import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.model.Movie;
+
+// Conversion between the movie entity and its DTO
+public final class MovieMapper {
+
+    private MovieMapper() {
+    }
+
+    // Genres are copied while the session is open: the lazy collection cannot be read once the DTO leaves it
+    public static MovieDTO toDTO(Movie movie) {
+        return MovieDTO.builder()
+                .id(movie.getId())
+                .title(movie.getTitle())
+                .director(movie.getDirector())
+                .genres(movie.getGenres() == null ? new HashSet<>() : new HashSet<>(movie.getGenres()))
+                .releaseDate(movie.getReleaseDate())
+                .durationMinutes(movie.getDurationMinutes())
+                .rating(movie.getRating())
+                .plot(movie.getPlot())
+                .featured(movie.isFeatured())
+                .version(movie.getVersion())
+                .lastModified(movie.getLastModified())
+                .build();
+    }
+
+    // The entity gets its own genre set, never the DTO's collection or null
+    public static Movie toEntity(MovieDTO movieDTO) {
+        return Movie.builder()
+                .title(movieDTO.getTitle())
+                .director(movieDTO.getDirector())
+                .genres(movieDTO.getGenres() == null ? new HashSet<>() : new HashSet<>(movieDTO.getGenres()))
+                .releaseDate(movieDTO.getReleaseDate())
+                .durationMinutes(movieDTO.getDurationMinutes())
+                .rating(movieDTO.getRating())
+                .plot(movieDTO.getPlot())
+                .featured(movieDTO.isFeatured())
+                .build();
+    }
+}
@@ -0,0 +1,363 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.repository.MovieFingerprint;
+import com.dev.funcinema.repository.MovieJdbcRepository;
+import com.dev.funcinema.repository.MovieRepository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+// In-process trigram index over movie title, director and genres.
+// Answers the case-insensitive substring filters of a search with candidate movie ids,
+// so the database query becomes a primary key lookup instead of LIKE '%x%' scans.
+// Writes on this instance are applied when they commit; every movie.search-index.sync-interval the
+// index also re-reads the movies whose last_modified is recent and drops deleted ones, so changes made
+// through other instances show up within one interval. Searches fall back to the database while the
+// index is not loaded or has not synced for movie.search-index.max-staleness.
+@Slf4j
+@Component
+public class MovieSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final MovieJdbcRepository movieJdbcRepository;
+
+    private final MovieRepository movieRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int fetchSize;
+
+    private final Duration syncOverlap;
+
+    private final long maxStalenessMs;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final FieldIndex titles = new FieldIndex();
+    private final FieldIndex directors = new FieldIndex();
+    private final FieldIndex genres = new FieldIndex();
+
+    // Ids written while a load or sync runs; it must not overwrite them with its older snapshot
+    private Set<Long> touchedDuringScan;
+
+    // Start of the last successful load or sync, guarded by the scan methods' monitor
+    private Instant lastSync;
+
+    private volatile long lastSyncMillis;
+
+    private volatile boolean ready;
+
+    public MovieSearchIndex(MovieJdbcRepository movieJdbcRepository,
+                            MovieRepository movieRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${movie.export.fetch-size:500}") int fetchSize,
+                            @Value("${movie.search-index.sync-overlap:60000}") long syncOverlapMs,
+                            @Value("${movie.search-index.max-staleness:300000}") long maxStalenessMs) {
+        this.movieJdbcRepository = movieJdbcRepository;
+        this.movieRepository = movieRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.syncOverlap = Duration.ofMillis(syncOverlapMs);
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        long start = System.currentTimeMillis();
+        beginScan();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> movieJdbcRepository.streamAll(fetchSize, this::putUntouched));
+            synced(Instant.ofEpochMilli(start));
+            ready = true;
+            log.info("Movie search index loaded {} movies in {} ms", size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to load movie search index, searches fall back to the database: {}", e.getMessage());
+        } finally {
+            endScan();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${movie.search-index.sync-interval:30000}",
+            initialDelayString = "${movie.search-index.sync-interval:30000}")
+    public synchronized void sync() {
+        if (!ready) {
+            // The initial load failed; retry it rather than patching an empty index
+            load();
+            return;
+        }
+
+        Instant start = Instant.now();
+        // Overlap with the previous pass: a change may commit a little after its last_modified, and
+        // other instances stamp it with their own clocks
+        Instant since = lastSync.minus(syncOverlap);
+        beginScan();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                movieJdbcRepository.streamModifiedSince(since, fetchSize, this::putUntouched);
+                removeDeleted();
+            });
+            synced(start);
+        } catch (Exception e) {
+            log.warn("Failed to sync movie search index, retrying in the next pass: {}", e.getMessage());
+        } finally {
+            endScan();
+        }
+    }
+
+    public boolean isReady() {
+        return ready && System.currentTimeMillis() - lastSyncMillis <= maxStalenessMs;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return titles.values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of movies matching every given filter; null or blank filters are ignored
+    public Set<Long> findCandidates(String title, String director, String genre) {
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> matches = new ArrayList<>(3);
+            if (StringUtils.hasText(title)) {
+                matches.add(titles.search(normalize(title)));
+            }
+            if (StringUtils.hasText(director)) {
+                matches.add(directors.search(normalize(director)));
+            }
+            if (StringUtils.hasText(genre)) {
+                matches.add(genres.search(normalize(genre)));
+            }
+            return intersect(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Write paths call these inside their transaction; the index changes only once it commits
+
+    public void indexAfterCommit(Movie movie) {
+        Long id = movie.getId();
+        String title = movie.getTitle();
+        String director = movie.getDirector();
+        Set<String> movieGenres = movie.getGenres() == null ? Set.of() : new HashSet<>(movie.getGenres());
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                markTouched(id);
+                put(Movie.builder().id(id).title(title).director(director).genres(movieGenres).build());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                markTouched(id);
+                titles.remove(id);
+                directors.remove(id);
+                genres.remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void put(Movie movie) {
+        Long id = movie.getId();
+        titles.put(id, List.of(normalize(movie.getTitle())));
+        directors.put(id, List.of(normalize(movie.getDirector())));
+        genres.put(id, movie.getGenres() == null ? List.of()
+                : movie.getGenres().stream().map(MovieSearchIndex::normalize).toList());
+    }
+
+    // Deleted rows leave no last_modified behind. The id count and sum only differ from the
+    // database's after a delete (or an insert the next pass picks up), so the ids are read only then.
+    private void removeDeleted() {
+        MovieFingerprint fingerprint = movieRepository.fingerprint(null);
+        lock.readLock().lock();
+        try {
+            Set<Long> indexed = titles.values.keySet();
+            long idSum = indexed.stream().mapToLong(Long::longValue).sum();
+            if (indexed.size() == fingerprint.count() && idSum == fingerprint.idSum()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<Long> existing = movieJdbcRepository.findAllIds();
+        lock.writeLock().lock();
+        try {
+            for (Long id : new ArrayList<>(titles.values.keySet())) {
+                if (!existing.contains(id) && !touchedDuringScan.contains(id)) {
+                    titles.remove(id);
+                    directors.remove(id);
+                    genres.remove(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putUntouched(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            if (!touchedDuringScan.contains(movie.getId())) {
+                put(movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void beginScan() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringScan = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void endScan() {
+        lock.writeLock().lock();
+        try {
+            touchedDuringScan = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void synced(Instant start) {
+        lastSync = start;
+        lastSyncMillis = start.toEpochMilli();
+    }
+
+    private void markTouched(Long id) {
+        if (touchedDuringScan != null) {
+            touchedDuringScan.add(id);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> intersect(List<Set<Long>> sets) {
+        if (sets.isEmpty()) {
+            return new HashSet<>();
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.retainAll(sets.get(i));
+        }
+        return result;
+    }
+
+    // Postings of one (possibly multi-valued) field: trigram -> movie ids, plus the values for verification
+    private static final class FieldIndex {
+
+        private final Map<Long, List<String>> values = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(Long id, List<String> fieldValues) {
+            remove(id);
+            values.put(id, fieldValues);
+            for (String value : fieldValues) {
+                for (String gram : grams(value)) {
+                    postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+                }
+            }
+        }
+
+        void remove(Long id) {
+            List<String> previous = values.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String value : previous) {
+                for (String gram : grams(value)) {
+                    Set<Long> ids = postings.get(gram);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            postings.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        Set<Long> search(String term) {
+            Collection<Long> candidates;
+            if (term.length() < GRAM) {
+                // Too short to have a trigram, check every value in memory
+                candidates = values.keySet();
+            } else {
+                List<Set<Long>> lists = new ArrayList<>();
+                for (String gram : grams(term)) {
+                    Set<Long> ids = postings.get(gram);
+                    if (ids == null) {
+                        return new HashSet<>();
+                    }
+                    lists.add(ids);
+                }
+                candidates = intersect(lists);
+            }
+
+            // Trigram hits are only candidates, confirm the actual substring
+            Set<Long> result = new HashSet<>();
+            for (Long id : candidates) {
+                for (String value : values.get(id)) {
+                    if (value.contains(term)) {
+                        result.add(id);
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static Set<String> grams(String value) {
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM));
+            }
+            return grams;
+        }
+    }
+}
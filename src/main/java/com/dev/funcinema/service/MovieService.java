@@ -3,9 +3,13 @@ package com.dev.funcinema.service;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import com.dev.funcinema.dto.CursorPageDTO;
 import com.dev.funcinema.dto.MovieDTO;
 import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.repository.MovieFingerprint;
+import com.dev.funcinema.repository.MovieVersion;
 import org.springframework.data.domain.Page;
 
 public interface MovieService {
@@ -15,6 +19,14 @@ public interface MovieService {
     List<MovieDTO> getAllMovies();
     void deleteMovie(Long id);
 
+    // Conditional GET validators, read without loading the movies themselves
+    MovieVersion getMovieVersion(Long id);
+    MovieFingerprint fingerprintAllMovies();
+    MovieFingerprint fingerprintSearch(MovieSearchDTO searchDTO);
+
+    // Streaming export, hands each movie to the sink as it is read
+    void exportMovies(Consumer<MovieDTO> sink);
+
     // Asynchronous CRUD operations using virtual threads
     CompletableFuture<MovieDTO> createMovieAsync(MovieDTO movieDTO);
     CompletableFuture<MovieDTO> getMovieByIdAsync(Long id);
@@ -25,4 +37,8 @@ public interface MovieService {
     // Search operations
     Page<MovieDTO> searchMovies(MovieSearchDTO searchDTO);
     CompletableFuture<Page<MovieDTO>> searchMoviesAsync(MovieSearchDTO searchDTO);
+
+    // Keyset (cursor) search operations, no count query
+    CursorPageDTO<MovieDTO> searchMoviesByCursor(MovieSearchDTO searchDTO);
+    CompletableFuture<CursorPageDTO<MovieDTO>> searchMoviesByCursorAsync(MovieSearchDTO searchDTO);
 }
@@ -1,76 +1,125 @@
 package com.dev.funcinema.service;
 
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import com.dev.funcinema.dto.CursorPageDTO;
 import com.dev.funcinema.dto.MovieDTO;
 import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.exception.BadRequestException;
 import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.repository.MovieFingerprint;
+import com.dev.funcinema.repository.MovieJdbcRepository;
 import com.dev.funcinema.repository.MovieRepository;
+import com.dev.funcinema.repository.MovieSearchCursor;
 import com.dev.funcinema.repository.MovieSpecifications;
+import com.dev.funcinema.repository.MovieVersion;
 import jakarta.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 @Service
 public class MovieServiceImpl implements MovieService {
 
     private final MovieRepository movieRepository;
 
+    private final MovieJdbcRepository movieJdbcRepository;
+
+    private final MovieCatalogCache movieCatalogCache;
+
+    private final MovieSearchIndex movieSearchIndex;
+
+    private final int exportFetchSize;
+
+    private final int maxIndexCandidates;
+
     @Autowired
-    public MovieServiceImpl(MovieRepository movieRepository) {
+    public MovieServiceImpl(MovieRepository movieRepository,
+                            MovieJdbcRepository movieJdbcRepository,
+                            MovieCatalogCache movieCatalogCache,
+                            MovieSearchIndex movieSearchIndex,
+                            @Value("${movie.export.fetch-size:500}") int exportFetchSize,
+                            @Value("${movie.search-index.max-candidates:5000}") int maxIndexCandidates) {
         this.movieRepository = movieRepository;
+        this.movieJdbcRepository = movieJdbcRepository;
+        this.movieCatalogCache = movieCatalogCache;
+        this.movieSearchIndex = movieSearchIndex;
+        this.exportFetchSize = exportFetchSize;
+        this.maxIndexCandidates = maxIndexCandidates;
     }
 
-    // Utility methods for conversion between entity and DTO
-    private MovieDTO convertToDTO(Movie movie) {
-        return MovieDTO.builder()
-                .title(movie.getTitle())
-                .director(movie.getDirector())
-                .genres(movie.getGenres())
-                .releaseDate(movie.getReleaseDate())
-                .durationMinutes(movie.getDurationMinutes())
-                .rating(movie.getRating())
-                .plot(movie.getPlot())
-                .featured(movie.isFeatured())
-                .build();
+    // Text filters are answered by the search index when it is loaded and selective enough,
+    // otherwise they fall back to LIKE predicates in the database
+    private Specification<Movie> buildSearchSpecification(MovieSearchDTO searchDTO) {
+        boolean hasTextFilter = StringUtils.hasText(searchDTO.getTitle())
+                || StringUtils.hasText(searchDTO.getDirector())
+                || StringUtils.hasText(searchDTO.getGenre());
+        if (!hasTextFilter || !movieSearchIndex.isReady()) {
+            return MovieSpecifications.buildSpecification(searchDTO);
+        }
+
+        Set<Long> candidateIds = movieSearchIndex.findCandidates(
+                searchDTO.getTitle(), searchDTO.getDirector(), searchDTO.getGenre());
+        if (candidateIds.size() > maxIndexCandidates) {
+            return MovieSpecifications.buildSpecification(searchDTO);
+        }
+        return MovieSpecifications.buildSpecification(searchDTO, candidateIds);
     }
 
-    private Movie convertToEntity(MovieDTO movieDTO) {
-        return Movie.builder()
-                .title(movieDTO.getTitle())
-                .director(movieDTO.getDirector())
-                .genres(movieDTO.getGenres())
-                .releaseDate(movieDTO.getReleaseDate())
-                .durationMinutes(movieDTO.getDurationMinutes())
-                .rating(movieDTO.getRating())
-                .plot(movieDTO.getPlot())
-                .featured(movieDTO.isFeatured())
-                .build();
+    // Not transactional: cache hits must not check out a connection, misses use the repository's own transaction
+    private MovieDTO loadMovie(Long id) {
+        return movieCatalogCache.get(id, key -> movieRepository.findWithGenresById(key)
+                .map(MovieMapper::toDTO)
+                .orElseThrow(() -> new EntityNotFoundException("Movie not found with ID: " + key)));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public MovieDTO getMovieById(Long id) {
-        Movie movie = movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Movie not found with ID: " + id));
-        return convertToDTO(movie);
+        return loadMovie(id);
+    }
+
+    @Override
+    public MovieVersion getMovieVersion(Long id) {
+        // A cached movie carries its version, otherwise only the validator columns are read
+        return movieCatalogCache.getIfPresent(id)
+                .map(movie -> new MovieVersion(id, movie.getVersion(), movie.getLastModified()))
+                .orElseGet(() -> movieRepository.findVersionById(id)
+                        .orElseThrow(() -> new EntityNotFoundException("Movie not found with ID: " + id)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MovieFingerprint fingerprintAllMovies() {
+        return movieRepository.fingerprint(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MovieFingerprint fingerprintSearch(MovieSearchDTO searchDTO) {
+        // The whole filtered set, whatever page or cursor is asked for; the ETag adds those
+        return movieRepository.fingerprint(buildSearchSpecification(searchDTO));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<MovieDTO> getAllMovies() {
-        return movieRepository.findAll().stream()
-                .map(this::convertToDTO)
+        return movieRepository.findAllWithGenresBy().stream()
+                .map(MovieMapper::toDTO)
                 .collect(Collectors.toList());
     }
 
@@ -83,6 +132,15 @@ public class MovieServiceImpl implements MovieService {
         }
 
         movieRepository.deleteById(id);
+        movieCatalogCache.invalidate(id);
+        movieSearchIndex.removeAfterCommit(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportMovies(Consumer<MovieDTO> sink) {
+        // Rows come from a server-side cursor and are converted one by one, never collected
+        movieJdbcRepository.streamAll(exportFetchSize, movie -> sink.accept(MovieMapper.toDTO(movie)));
     }
 
     // Asynchronous CRUD operations using virtual threads
@@ -92,9 +150,11 @@ public class MovieServiceImpl implements MovieService {
     @Transactional
     public CompletableFuture<MovieDTO> createMovieAsync(MovieDTO movieDTO) {
         // Directly implement the movie creation logic within the async method
-        Movie movie = convertToEntity(movieDTO);
+        Movie movie = MovieMapper.toEntity(movieDTO);
         Movie savedMovie = movieRepository.save(movie);
-        MovieDTO createdMovieDTO = convertToDTO(savedMovie);
+        movieCatalogCache.invalidate(savedMovie.getId());
+        movieSearchIndex.indexAfterCommit(savedMovie);
+        MovieDTO createdMovieDTO = MovieMapper.toDTO(savedMovie);
 
         // Return the result wrapped in a CompletableFuture
         return CompletableFuture.completedFuture(createdMovieDTO);
@@ -102,12 +162,9 @@ public class MovieServiceImpl implements MovieService {
 
     @Override
     @Async("virtualThreadTaskExecutor")
-    @Transactional(readOnly = true)
     public CompletableFuture<MovieDTO> getMovieByIdAsync(Long id) {
-        // Directly implement the movie retrieval logic
-        Movie movie = movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Movie not found with ID: " + id));
-        MovieDTO movieDTO = convertToDTO(movie);
+        // Served from the catalog cache, falling back to the database on a miss
+        MovieDTO movieDTO = loadMovie(id);
 
         return CompletableFuture.completedFuture(movieDTO);
     }
@@ -117,8 +174,8 @@ public class MovieServiceImpl implements MovieService {
     @Transactional(readOnly = true)
     public CompletableFuture<List<MovieDTO>> getAllMoviesAsync() {
         // Direct implementation of retrieving all movies
-        List<MovieDTO> movies = movieRepository.findAll().stream()
-                .map(this::convertToDTO)
+        List<MovieDTO> movies = movieRepository.findAllWithGenresBy().stream()
+                .map(MovieMapper::toDTO)
                 .collect(Collectors.toList());
 
         return CompletableFuture.completedFuture(movies);
@@ -128,15 +185,25 @@ public class MovieServiceImpl implements MovieService {
     @Async("virtualThreadTaskExecutor")
     @Transactional
     public CompletableFuture<MovieDTO> updateMovieAsync(Long id, MovieDTO movieDTO) {
-        // Direct implementation of movie update
-        if (!movieRepository.existsById(id)) {
-            throw new EntityNotFoundException("Movie not found with ID: " + id);
+        // Updated in place, so Hibernate increments the version; flushed to read the new version back
+        Movie movie = movieRepository.findWithGenresById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Movie not found with ID: " + id));
+        movie.setTitle(movieDTO.getTitle());
+        movie.setDirector(movieDTO.getDirector());
+        movie.getGenres().clear();
+        if (movieDTO.getGenres() != null) {
+            movie.getGenres().addAll(movieDTO.getGenres());
         }
-
-        Movie movie = convertToEntity(movieDTO);
-        movie.setId(id); // Ensure ID is set correctly
-        Movie updatedMovie = movieRepository.save(movie);
-        MovieDTO updatedMovieDTO = convertToDTO(updatedMovie);
+        movie.setReleaseDate(movieDTO.getReleaseDate());
+        movie.setDurationMinutes(movieDTO.getDurationMinutes());
+        movie.setRating(movieDTO.getRating());
+        movie.setPlot(movieDTO.getPlot());
+        movie.setFeatured(movieDTO.isFeatured());
+        movie.setLastModified(Instant.now());
+        Movie updatedMovie = movieRepository.saveAndFlush(movie);
+        movieCatalogCache.invalidate(id);
+        movieSearchIndex.indexAfterCommit(updatedMovie);
+        MovieDTO updatedMovieDTO = MovieMapper.toDTO(updatedMovie);
 
         return CompletableFuture.completedFuture(updatedMovieDTO);
     }
@@ -151,6 +218,8 @@ public class MovieServiceImpl implements MovieService {
         }
 
         movieRepository.deleteById(id);
+        movieCatalogCache.invalidate(id);
+        movieSearchIndex.removeAfterCommit(id);
         return CompletableFuture.completedFuture(null);
     }
 
@@ -169,12 +238,12 @@ public class MovieServiceImpl implements MovieService {
 
         // Use specifications for dynamic querying
         Page<Movie> moviesPage = movieRepository.findAll(
-                MovieSpecifications.buildSpecification(searchDTO),
+                buildSearchSpecification(searchDTO),
                 pageable
         );
 
         // Convert to DTOs
-        return moviesPage.map(this::convertToDTO);
+        return moviesPage.map(MovieMapper::toDTO);
     }
 
     @Override
@@ -192,13 +261,71 @@ public class MovieServiceImpl implements MovieService {
 
         // Use specifications for dynamic querying
         Page<Movie> moviesPage = movieRepository.findAll(
-                MovieSpecifications.buildSpecification(searchDTO),
+                buildSearchSpecification(searchDTO),
                 pageable
         );
 
         // Convert to DTOs
-        Page<MovieDTO> movieDTOPage = moviesPage.map(this::convertToDTO);
+        Page<MovieDTO> movieDTOPage = moviesPage.map(MovieMapper::toDTO);
 
         return CompletableFuture.completedFuture(movieDTOPage);
     }
+
+    // Cursor search operations
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<MovieDTO> searchMoviesByCursor(MovieSearchDTO searchDTO) {
+        return findMovieSlice(searchDTO);
+    }
+
+    @Override
+    @Async("virtualThreadTaskExecutor")
+    @Transactional(readOnly = true)
+    public CompletableFuture<CursorPageDTO<MovieDTO>> searchMoviesByCursorAsync(MovieSearchDTO searchDTO) {
+        return CompletableFuture.completedFuture(findMovieSlice(searchDTO));
+    }
+
+    private CursorPageDTO<MovieDTO> findMovieSlice(MovieSearchDTO searchDTO) {
+        String sortBy = searchDTO.getSortBy();
+        boolean ascending = searchDTO.isAscending();
+        int size = searchDTO.getSize();
+        if (size <= 0) {
+            throw new BadRequestException("Page size must be positive");
+        }
+
+        Specification<Movie> specification = buildSearchSpecification(searchDTO);
+        if (StringUtils.hasText(searchDTO.getCursor())) {
+            MovieSearchCursor cursor = MovieSearchCursor.decode(searchDTO.getCursor());
+            if (!cursor.sortBy().equals(sortBy) || cursor.ascending() != ascending) {
+                throw new BadRequestException("Search cursor does not match the requested sort order");
+            }
+            specification = specification.and(MovieSpecifications.seekAfter(cursor));
+        } else {
+            MovieSearchCursor.checkSortable(sortBy);
+        }
+
+        // The id tiebreaker makes the order total, so the seek predicate never skips or repeats rows
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = "id".equals(sortBy)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+
+        // Fetch one extra row to learn whether another slice exists
+        List<Movie> movies = movieRepository.findBy(specification,
+                query -> query.sortBy(sort).limit(size + 1).all());
+
+        boolean hasNext = movies.size() > size;
+        List<Movie> slice = hasNext ? movies.subList(0, size) : movies;
+        String nextCursor = hasNext
+                ? MovieSearchCursor.after(slice.get(slice.size() - 1), sortBy, ascending).encode()
+                : null;
+
+        return CursorPageDTO.<MovieDTO>builder()
+                .content(slice.stream().map(MovieMapper::toDTO).collect(Collectors.toList()))
+                .size(slice.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
 }
@@ -0,0 +1,27 @@
+package com.dev.funcinema.service;
+
+import java.security.SecureRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Numeric one-time codes of otp.length digits from a shared SecureRandom
+@Component
+public class OtpGenerator {
+
+    private final int length;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public OtpGenerator(@Value("${otp.length}") int length) {
+        this.length = length;
+    }
+
+    public String generate() {
+        StringBuilder otp = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            otp.append(random.nextInt(10));
+        }
+        return otp.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.util.Map;
+
+import com.dev.funcinema.model.Verification.VerificationType;
+
+// Where issued one-time codes are kept until they are used or expire. Selected with otp.store:
+// "memory" (InMemoryOtpStore, the default) or "jpa" (JpaOtpStore, the verifications table).
+public interface OtpStore {
+
+    // Replaces any earlier code of the same user and type
+    void issue(Long userId, VerificationType type, String code, Duration ttl);
+
+    // Issues one code per type at once, e.g. every channel of a new account
+    default void issueAll(Long userId, Map<VerificationType, String> codes, Duration ttl) {
+        codes.forEach((type, code) -> issue(userId, type, code, ttl));
+    }
+
+    // Consumes the code when it matches and has not expired; a code verifies at most once
+    Result verify(Long userId, VerificationType type, String code);
+
+    enum Result {
+        VALID,
+        INVALID,
+        EXPIRED
+    }
+}
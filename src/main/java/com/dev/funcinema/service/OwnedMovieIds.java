@@ -0,0 +1,85 @@
+package com.dev.funcinema.service;
+
+import java.util.Collection;
+
+// Immutable set of movie ids backed by an open-addressing long[] table (0 marks a free slot,
+// ids are always positive). A few bytes per owned movie instead of a boxed HashSet entry, and
+// contains() is a constant-time probe. Writes return a new instance, so readers never lock.
+final class OwnedMovieIds {
+
+    static final OwnedMovieIds EMPTY = new OwnedMovieIds(new long[2], 0);
+
+    private final long[] table;
+
+    private final int size;
+
+    private OwnedMovieIds(long[] table, int size) {
+        this.table = table;
+        this.size = size;
+    }
+
+    static OwnedMovieIds of(Collection<Long> movieIds) {
+        long[] table = new long[capacityFor(movieIds.size())];
+        int size = 0;
+        for (Long movieId : movieIds) {
+            if (movieId != null && insert(table, movieId)) {
+                size++;
+            }
+        }
+        return new OwnedMovieIds(table, size);
+    }
+
+    boolean contains(long movieId) {
+        int mask = table.length - 1;
+        for (int slot = slot(movieId, mask); ; slot = (slot + 1) & mask) {
+            long value = table[slot];
+            if (value == movieId) {
+                return true;
+            }
+            if (value == 0) {
+                return false;
+            }
+        }
+    }
+
+    OwnedMovieIds with(long movieId) {
+        if (contains(movieId)) {
+            return this;
+        }
+        long[] grown = new long[capacityFor(size + 1)];
+        for (long value : table) {
+            if (value != 0) {
+                insert(grown, value);
+            }
+        }
+        insert(grown, movieId);
+        return new OwnedMovieIds(grown, size + 1);
+    }
+
+    // Load factor stays at or below one half, keeping probe sequences short
+    private static int capacityFor(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries * 2 - 1)) << 1;
+    }
+
+    private static boolean insert(long[] table, long movieId) {
+        if (movieId <= 0) {
+            throw new IllegalArgumentException("Movie ids must be positive: " + movieId);
+        }
+        int mask = table.length - 1;
+        for (int slot = slot(movieId, mask); ; slot = (slot + 1) & mask) {
+            if (table[slot] == movieId) {
+                return false;
+            }
+            if (table[slot] == 0) {
+                table[slot] = movieId;
+                return true;
+            }
+        }
+    }
+
+    private static int slot(long movieId, int mask) {
+        // Sequential ids would cluster with a plain modulo, spread them first
+        long hash = movieId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,27 @@
+package com.dev.funcinema.service;
+
+import java.math.BigDecimal;
+
+import com.dev.funcinema.model.Purchase.PaymentMethod;
+
+// Payment provider integration. charge() may block; PaymentProcessor calls it on a virtual
+// thread with a deadline, never inside a database transaction.
+public interface PaymentGateway {
+
+    PaymentResult charge(PaymentCharge charge);
+
+    // The purchase id doubles as the provider-side idempotency key
+    record PaymentCharge(Long purchaseId, Long userId, BigDecimal amount, PaymentMethod paymentMethod) {
+    }
+
+    record PaymentResult(boolean approved, String transactionId, String declineReason) {
+
+        public static PaymentResult approved(String transactionId) {
+            return new PaymentResult(true, transactionId, null);
+        }
+
+        public static PaymentResult declined(String declineReason) {
+            return new PaymentResult(false, null, declineReason);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dev.funcinema.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.dev.funcinema.service.PaymentGateway.PaymentCharge;
+import com.dev.funcinema.service.PaymentGateway.PaymentResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Runs gateway charges on virtual threads with a deadline. The returned attempt completes on a virtual
+// thread with the gateway's answer or a TimeoutException, and still delivers an answer that comes
+// after the deadline; latency is recorded as payment.gateway.duration.
+@Component
+public class PaymentProcessor {
+
+    private final PaymentGateway paymentGateway;
+
+    private final Executor executor;
+
+    private final Executor completionExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final long timeoutMs;
+
+    public PaymentProcessor(PaymentGateway paymentGateway,
+                            @Qualifier("paymentTaskExecutor") Executor executor,
+                            @Qualifier("paymentCompletionExecutor") Executor completionExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${payment.timeout:5000}") long timeoutMs) {
+        this.paymentGateway = paymentGateway;
+        this.executor = executor;
+        this.completionExecutor = completionExecutor;
+        this.meterRegistry = meterRegistry;
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Throws RejectedExecutionException when too many charges are waiting for the gateway; the charge
+    // was then never submitted. Any later failure may come after the gateway took the money.
+    public PaymentAttempt charge(PaymentCharge charge) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<PaymentResult> call = CompletableFuture.supplyAsync(() -> paymentGateway.charge(charge), executor);
+        call.whenComplete((result, error) -> sample.stop(meterRegistry.timer("payment.gateway.duration",
+                "outcome", error != null ? "error" : result.approved() ? "approved" : "declined")));
+
+        // orTimeout on a copy: the gateway call keeps running, so its late answer is still delivered
+        // Completing asynchronously hands callers' stages to a virtual thread even on timeout, which
+        // otherwise fires on the JDK's single delayer thread, where blocking work must not run. The
+        // completion executor cannot reject, unlike the bounded gateway executor.
+        CompletableFuture<PaymentResult> withinDeadline = call.copy().orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((result, error) -> {
+                    if (unwrap(error) instanceof TimeoutException) {
+                        meterRegistry.counter("payment.gateway.timeouts").increment();
+                    }
+                }, completionExecutor);
+        return new PaymentAttempt(call, withinDeadline);
+    }
+
+    // A charge in flight: the gateway's answer whenever it comes, and the same answer or a
+    // TimeoutException once payment.timeout has passed
+    public record PaymentAttempt(CompletableFuture<PaymentResult> answer,
+                                 CompletableFuture<PaymentResult> withinDeadline) {
+    }
+
+    static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,75 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.exception.IdempotencyKeyReusedException;
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// In-memory idempotency keys for purchases. Concurrent requests with the same user and key
+// share one in-flight execution and all receive its PurchaseResponse; final (COMPLETED or FAILED)
+// responses are replayed until they expire. Errors and PENDING responses are not remembered, so a
+// retry after either runs again and reads the purchase as stored, e.g. once the late gateway answer
+// or PurchaseReconciler has settled it (a declined payment is a response, not an error). A key sent with a different request hash than
+// the execution it matches is rejected with IdempotencyKeyReusedException.
+@Component
+public class PurchaseIdempotencyStore {
+
+    private final ConcurrentMap<String, Execution> executions;
+
+    public PurchaseIdempotencyStore(@Value("${purchase.idempotency.ttl:86400000}") long ttlMs,
+                                    @Value("${purchase.idempotency.maximum-size:100000}") long maximumSize) {
+        Cache<String, Execution> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.executions = cache.asMap();
+    }
+
+    // Runs the action unless an execution for the same user and key exists, in which case that
+    // execution's future is returned. An execution is forgotten once it fails or answers PENDING.
+    public CompletableFuture<PurchaseResponse> execute(Long userId, String idempotencyKey, String requestHash,
+                                                       Supplier<CompletableFuture<PurchaseResponse>> action) {
+        String key = userId + ":" + idempotencyKey;
+        Execution execution = new Execution(requestHash, new CompletableFuture<>());
+        Execution existing = executions.putIfAbsent(key, execution);
+        if (existing != null) {
+            if (!existing.requestHash().equals(requestHash)) {
+                return CompletableFuture.failedFuture(new IdempotencyKeyReusedException(idempotencyKey));
+            }
+            return existing.future();
+        }
+
+        CompletableFuture<PurchaseResponse> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                executions.remove(key, execution);
+                execution.future().completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                if (response.getStatus() == PurchaseStatus.PENDING) {
+                    executions.remove(key, execution);
+                }
+                execution.future().complete(response);
+            }
+        });
+        return execution.future();
+    }
+
+    private record Execution(String requestHash, CompletableFuture<PurchaseResponse> future) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Settles purchases left PENDING for longer than purchase.reconcile.stale-after, so a retry with their
+// idempotency key stops answering 202 forever. Each run takes one batch, oldest first; purchases that
+// stay PENDING (the gateway timed out again) are tried again on a later run.
+@Slf4j
+@Component
+public class PurchaseReconciler {
+
+    private final PurchaseService purchaseService;
+
+    private final Duration staleAfter;
+
+    private final int batchSize;
+
+    public PurchaseReconciler(PurchaseService purchaseService,
+                              @Value("${purchase.reconcile.stale-after:300000}") long staleAfterMs,
+                              @Value("${purchase.reconcile.batch-size:100}") int batchSize) {
+        this.purchaseService = purchaseService;
+        this.staleAfter = Duration.ofMillis(staleAfterMs);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${purchase.reconcile.interval:60000}",
+            initialDelayString = "${purchase.reconcile.interval:60000}")
+    public void reconcile() {
+        int reconciled = purchaseService.reconcileStalePurchases(LocalDateTime.now().minus(staleAfter), batchSize);
+        if (reconciled > 0) {
+            log.info("Reconciled {} stale pending purchases", reconciled);
+        }
+    }
+}
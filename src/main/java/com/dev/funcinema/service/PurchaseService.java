@@ -1,8 +1,11 @@
 package com.dev.funcinema.service;
 
+import com.dev.funcinema.dto.CursorPageDTO;
 import com.dev.funcinema.dto.PaymentMethodDTO;
 import com.dev.funcinema.dto.PurchaseRequest;
 import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.exception.BadRequestException;
+import com.dev.funcinema.exception.IdempotencyKeyReusedException;
 import com.dev.funcinema.exception.PaymentProcessingException;
 import com.dev.funcinema.exception.ResourceNotFoundException;
 import com.dev.funcinema.model.Movie;
@@ -10,23 +13,38 @@ import com.dev.funcinema.model.Purchase;
 import com.dev.funcinema.model.Purchase.PurchaseStatus;
 import com.dev.funcinema.model.User;
 import com.dev.funcinema.repository.MovieRepository;
+import com.dev.funcinema.repository.PurchaseHistoryCursor;
 import com.dev.funcinema.repository.PurchaseRepository;
 import com.dev.funcinema.repository.UserRepository;
 import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.PaymentGateway.PaymentCharge;
+import com.dev.funcinema.service.PaymentGateway.PaymentResult;
+import com.dev.funcinema.service.PaymentProcessor.PaymentAttempt;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -35,65 +53,273 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PurchaseService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // A purchase still being charged counts as owning the movie, so it cannot be bought twice meanwhile
+    private static final Set<PurchaseStatus> OWNING_STATUSES = EnumSet.of(PurchaseStatus.PENDING, PurchaseStatus.COMPLETED);
+
     private final PurchaseRepository purchaseRepository;
 
     private final UserRepository userRepository;
 
     private final MovieRepository movieRepository;
 
-    @Transactional
+    private final PurchaseIdempotencyStore purchaseIdempotencyStore;
+
+    private final EntitlementService entitlementService;
+
+    private final PaymentProcessor paymentProcessor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    // Waits for the whole purchase, including the gateway call; prefer purchaseMovieAsync
     public PurchaseResponse purchaseMovie(PurchaseRequest request) {
+        try {
+            return purchaseMovieAsync(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Records a PENDING purchase in a short transaction on the calling thread, charges through the
+    // gateway on a virtual thread with no transaction or connection held, then completes the
+    // purchase in a second short transaction. Must be called where the security context is set.
+    public CompletableFuture<PurchaseResponse> purchaseMovieAsync(PurchaseRequest request) {
         // Get current user
         UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext()
                 .getAuthentication().getPrincipal();
+        Long userId = userDetails.getId();
+
+        String idempotencyKey = request.getIdempotencyKey();
+        if (!StringUtils.hasText(idempotencyKey)) {
+            try {
+                return chargeAndComplete(admit(() -> transactionTemplate.execute(status -> recordPendingPurchase(request, userId)))
+                        .purchase());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        // Retries that arrive while the first attempt is still running wait for its result
+        String requestHash = requestHash(request);
+        return purchaseIdempotencyStore.execute(userId, idempotencyKey, requestHash, () -> purchaseOnce(request, userId));
+    }
+
+    @Transactional(readOnly = true)
+    public PurchaseResponse getPurchase(Long purchaseId) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+        return purchaseRepository.findResponseByIdAndUserId(purchaseId, userDetails.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with ID: " + purchaseId));
+    }
 
-        User user = userRepository.findById(userDetails.getId())
+    private CompletableFuture<PurchaseResponse> purchaseOnce(PurchaseRequest request, Long userId) {
+        PendingPurchase recorded = admit(() -> transactionTemplate.execute(status -> recordPendingPurchase(request, userId)));
+        if (!recorded.started()) {
+            // Started before this instance saw the key (restart, other instance, expired entry) and returned
+            // as stored, possibly still PENDING while another attempt charges it
+            log.info("Purchase with idempotency key {} for user {} was already started", request.getIdempotencyKey(), userId);
+            return CompletableFuture.completedFuture(recorded.purchase());
+        }
+        return chargeAndComplete(recorded.purchase());
+    }
+
+    // Fails with IdempotencyKeyReusedException when the key was first used for another request
+    private Optional<PurchaseResponse> findByIdempotencyKey(Long userId, String idempotencyKey, String requestHash) {
+        return purchaseRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .map(purchase -> {
+                    // Purchases recorded before request hashes were stored are trusted as before
+                    if (purchase.getRequestHash() != null && !purchase.getRequestHash().equals(requestHash)) {
+                        throw new IdempotencyKeyReusedException(idempotencyKey);
+                    }
+                    return convertToResponse(purchase);
+                });
+    }
+
+    // Identifies what a request asks for; card details are left out, a retry may re-enter them
+    private static String requestHash(PurchaseRequest request) {
+        String canonical = request.getMovieId() + "|" + request.getPaymentMethod();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Only the transactions that start a purchase wait for a database permit and may be shed with a 503;
+    // completing one never is, since by then the customer has been charged
+    private <T> T admit(Supplier<T> transaction) {
+        return databaseConcurrencyLimiter.call(transaction);
+    }
+
+    private PendingPurchase recordPendingPurchase(PurchaseRequest request, Long userId) {
+        // The row lock makes concurrent purchases by one user, on any instance, take turns here,
+        // so the ownership check below cannot pass twice for the same movie
+        User user = userRepository.findForUpdateById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
+        // Looked up under the lock: a retry that waited here for the attempt holding its key gets that
+        // purchase back instead of failing the ownership check against it
+        String idempotencyKey = StringUtils.hasText(request.getIdempotencyKey()) ? request.getIdempotencyKey() : null;
+        String requestHash = idempotencyKey != null ? requestHash(request) : null;
+        if (idempotencyKey != null) {
+            Optional<PurchaseResponse> existing = findByIdempotencyKey(userId, idempotencyKey, requestHash);
+            if (existing.isPresent()) {
+                return new PendingPurchase(existing.get(), false);
+            }
+        }
+
         // Verify user has verified email and mobile
         if (!user.isEmailVerified() || !user.isMobileVerified()) {
             throw new PaymentProcessingException("Both email and mobile number must be verified to make purchases");
         }
 
+        // Checked against the database, not the entitlement cache, which is per instance and may lag
+        if (purchaseRepository.existsByUserIdAndMovieIdAndStatusIn(userId, request.getMovieId(), OWNING_STATUSES)) {
+            throw new PaymentProcessingException("You have already purchased this movie");
+        }
+
         // Get movie
         Movie movie = movieRepository.findById(request.getMovieId())
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with ID: " + request.getMovieId()));
 
-        // Check if already purchased
-        Set<Purchase> existingPurchases = purchaseRepository.findByUserIdAndMovieId(user.getId(), movie.getId());
-        if (!existingPurchases.isEmpty()) {
-            // Could return existing purchase instead of error
-            for (Purchase existingPurchase : existingPurchases) {
-                if (existingPurchase.getStatus() == PurchaseStatus.COMPLETED) {
-                    throw new PaymentProcessingException("You have already purchased this movie");
-                }
-            }
-        }
-
-        // Process payment (mock implementation)
-        String transactionId = processPayment(request);
-
-        // Create purchase record
-        Purchase purchase = Purchase.builder()
+        // The unique constraint on (user_id, idempotency_key) backs up the lookup above
+        Purchase purchase = purchaseRepository.saveAndFlush(Purchase.builder()
                 .user(user)
                 .movie(movie)
                 .amount(new BigDecimal("9.99")) // In a real implementation, this would come from the movie pricing
                 .paymentMethod(request.getPaymentMethod())
-                .transactionId(transactionId)
-                .status(PurchaseStatus.COMPLETED)
+                .idempotencyKey(idempotencyKey)
+                .requestHash(requestHash)
+                .status(PurchaseStatus.PENDING)
                 .purchaseDate(LocalDateTime.now())
-                .completedDate(LocalDateTime.now())
-                .build();
+                .build());
+
+        return new PendingPurchase(convertToResponse(purchase), true);
+    }
 
-        Purchase savedPurchase = purchaseRepository.save(purchase);
+    private CompletableFuture<PurchaseResponse> chargeAndComplete(PurchaseResponse pending) {
+        log.info("Processing payment for purchase {} with method: {}", pending.getId(), pending.getPaymentMethod());
+        PaymentAttempt attempt;
+        try {
+            attempt = paymentProcessor.charge(chargeOf(pending));
+        } catch (RejectedExecutionException e) {
+            // Never reached the gateway, so nothing was charged and the purchase can fail outright
+            return CompletableFuture.completedFuture(completePurchase(pending, null, e));
+        }
 
-        return convertToResponse(savedPurchase);
+        return attempt.withinDeadline().handle((result, error) -> {
+            if (PaymentProcessor.unwrap(error) instanceof TimeoutException) {
+                // The charge may still go through: the purchase stays PENDING for the client to poll
+                // and is completed by the gateway's late answer, or by the reconciler if none comes
+                log.warn("Payment for purchase {} is still pending after the gateway deadline", pending.getId());
+                attempt.answer().whenComplete((late, lateError) -> completeLate(pending, late, lateError));
+                return pending;
+            }
+            return completePurchase(pending, result, error);
+        });
     }
 
-    @Async("virtualThreadTaskExecutor")
-    @Transactional
-    public CompletableFuture<PurchaseResponse> purchaseMovieAsync(PurchaseRequest request) {
-        return CompletableFuture.completedFuture(purchaseMovie(request));
+    // Re-submits the charges of purchases still PENDING before the cutoff, such as those left by a crash
+    // between charging and completing, or whose gateway call never answered. The gateway deduplicates
+    // charges by purchase id, so a charge that went through is reported again rather than taken twice.
+    // Purchases that time out again or cannot be submitted stay PENDING for the next run.
+    public int reconcileStalePurchases(LocalDateTime cutoff, int limit) {
+        List<PurchaseResponse> stale = transactionTemplate.execute(status ->
+                purchaseRepository.findPendingBefore(cutoff, Limit.of(limit)));
+        if (stale == null || stale.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<PurchaseResponse>> outcomes = new ArrayList<>(stale.size());
+        for (PurchaseResponse pending : stale) {
+            log.info("Reconciling purchase {} pending since {}", pending.getId(), pending.getPurchaseDate());
+            PaymentAttempt attempt;
+            try {
+                attempt = paymentProcessor.charge(chargeOf(pending));
+            } catch (RejectedExecutionException e) {
+                // An earlier attempt may have been charged, so the purchase stays PENDING
+                log.warn("Payment processing is busy, leaving the remaining stale purchases for the next run");
+                break;
+            }
+            outcomes.add(attempt.withinDeadline().handle((result, error) -> {
+                if (PaymentProcessor.unwrap(error) instanceof TimeoutException) {
+                    return pending;
+                }
+                return completePurchase(pending, result, error);
+            }));
+        }
+        CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+        return stale.size();
+    }
+
+    private static PaymentCharge chargeOf(PurchaseResponse pending) {
+        return new PaymentCharge(pending.getId(), pending.getUserId(), pending.getAmount(), pending.getPaymentMethod());
+    }
+
+    private void completeLate(PurchaseResponse pending, PaymentResult result, Throwable error) {
+        try {
+            PurchaseResponse completed = completePurchase(pending, result, error);
+            log.info("Purchase {} completed as {} after the gateway deadline", pending.getId(), completed.getStatus());
+        } catch (RuntimeException e) {
+            log.error("Could not complete purchase {} after the gateway deadline; the reconciler will retry",
+                    pending.getId(), e);
+        }
+    }
+
+    private PurchaseResponse completePurchase(PurchaseResponse pending, PaymentResult result, Throwable error) {
+        PurchaseStatus status;
+        String failureReason = null;
+        if (error != null) {
+            status = PurchaseStatus.FAILED;
+            Throwable cause = PaymentProcessor.unwrap(error);
+            failureReason = cause instanceof RejectedExecutionException ? "Payment processing is busy, please retry"
+                    : "Payment gateway error";
+            log.warn("Payment for purchase {} failed: {}", pending.getId(), cause.toString());
+        } else if (result.approved()) {
+            status = PurchaseStatus.COMPLETED;
+            log.info("Payment processed successfully. Transaction ID: {}", result.transactionId());
+        } else {
+            status = PurchaseStatus.FAILED;
+            failureReason = result.declineReason();
+            log.info("Payment for purchase {} declined: {}", pending.getId(), failureReason);
+        }
+        String transactionId = result != null ? result.transactionId() : null;
+        LocalDateTime completedDate = LocalDateTime.now();
+        String reason = failureReason;
+
+        return transactionTemplate.execute(tx -> {
+            int updated = purchaseRepository.completePending(pending.getId(), status, transactionId, completedDate, reason);
+            if (updated == 0) {
+                // Completed by someone else meanwhile, report what is stored
+                return purchaseRepository.findResponseByIdAndUserId(pending.getId(), pending.getUserId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Purchase not found with ID: " + pending.getId()));
+            }
+            if (status == PurchaseStatus.COMPLETED) {
+                entitlementService.grantAfterCommit(pending.getUserId(), pending.getMovieId());
+            }
+
+            // A copy: after a timeout the pending response has already been handed to the client
+            return pending.toBuilder()
+                    .status(status)
+                    .transactionId(transactionId)
+                    .completedDate(completedDate)
+                    .failureReason(reason)
+                    .build();
+        });
+    }
+
+    // Playback and download authorization for the current user
+    public boolean ownsMovie(Long movieId) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+        return entitlementService.ownsMovie(userDetails.getId(), movieId);
     }
 
     @Transactional(readOnly = true)
@@ -109,6 +335,40 @@ public class PurchaseService {
                 .collect(Collectors.toList());
     }
 
+    // One page of the current user's purchases, newest first. Each page is an index range scan
+    // on (user_id, purchase_date, id), so late pages cost the same as the first one.
+    @Transactional(readOnly = true)
+    public CursorPageDTO<PurchaseResponse> getPurchaseHistory(String cursor, int size) {
+        if (size <= 0) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        int pageSize = Math.min(size, MAX_HISTORY_PAGE_SIZE);
+
+        UserDetailsImpl userDetails = (UserDetailsImpl) SecurityContextHolder.getContext()
+                .getAuthentication().getPrincipal();
+
+        // Fetch one extra row to learn whether another page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<PurchaseResponse> rows;
+        if (StringUtils.hasText(cursor)) {
+            PurchaseHistoryCursor after = PurchaseHistoryCursor.decode(cursor);
+            rows = purchaseRepository.findHistoryAfter(userDetails.getId(), after.purchaseDate(), after.id(), limit);
+        } else {
+            rows = purchaseRepository.findHistory(userDetails.getId(), limit);
+        }
+
+        boolean hasNext = rows.size() > pageSize;
+        List<PurchaseResponse> page = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? PurchaseHistoryCursor.after(page.get(page.size() - 1)).encode() : null;
+
+        return CursorPageDTO.<PurchaseResponse>builder()
+                .content(new ArrayList<>(page))
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public List<PaymentMethodDTO> getAvailablePaymentMethods() {
         // In a real implementation, this might come from a database or payment gateway API
@@ -134,20 +394,6 @@ public class PurchaseService {
         );
     }
 
-    // Mock payment processing
-    private String processPayment(PurchaseRequest request) {
-        log.info("Processing payment with method: {}", request.getPaymentMethod());
-
-        // In a real implementation, this would integrate with a payment gateway
-        // For this example, we'll simulate a payment processor
-
-        // Generate a transaction ID
-        String transactionId = UUID.randomUUID().toString();
-        log.info("Payment processed successfully. Transaction ID: {}", transactionId);
-
-        return transactionId;
-    }
-
     private PurchaseResponse convertToResponse(Purchase purchase) {
         return PurchaseResponse.builder()
                 .id(purchase.getId())
@@ -160,6 +406,11 @@ public class PurchaseService {
                 .status(purchase.getStatus())
                 .purchaseDate(purchase.getPurchaseDate())
                 .completedDate(purchase.getCompletedDate())
+                .failureReason(purchase.getFailureReason())
                 .build();
     }
+
+    // A purchase recorded for a request, or the one its idempotency key already started (started false)
+    private record PendingPurchase(PurchaseResponse purchase, boolean started) {
+    }
 }
@@ -0,0 +1,163 @@
+package com.dev.funcinema.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.UUID;
+
+import com.dev.funcinema.exception.InvalidTokenException;
+import com.dev.funcinema.model.RefreshToken;
+import com.dev.funcinema.repository.RefreshTokenRepository;
+import com.dev.funcinema.repository.RevokedFamily;
+import com.dev.funcinema.security.JwtUtils;
+import com.dev.funcinema.security.TokenRevocationList;
+import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.security.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Refresh tokens with rotation: each refresh consumes the presented token and issues its successor
+// in the same family (login session). A consumed token that comes back means it was copied, so the
+// whole session is revoked, its refresh tokens in the table and its access tokens through
+// TokenRevocationList. Revocations of other instances are picked up every jwt.revocation.sync-interval.
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final JwtUtils jwtUtils;
+
+    private final TokenRevocationList revocationList;
+
+    private final UserDetailsServiceImpl userDetailsService;
+
+    private final Duration syncOverlap;
+
+    private LocalDateTime lastSync;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               JwtUtils jwtUtils,
+                               TokenRevocationList revocationList,
+                               UserDetailsServiceImpl userDetailsService,
+                               @Value("${jwt.revocation.sync-overlap:60000}") long syncOverlapMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtils = jwtUtils;
+        this.revocationList = revocationList;
+        this.userDetailsService = userDetailsService;
+        this.syncOverlap = Duration.ofMillis(syncOverlapMs);
+    }
+
+    // Starts a session for a fresh login
+    @Transactional
+    public IssuedTokens startSession(UserDetailsImpl user) {
+        String sessionId = UUID.randomUUID().toString();
+        return new IssuedTokens(user,
+                jwtUtils.generateJwtToken(user, sessionId),
+                issue(user, sessionId, UUID.randomUUID().toString()));
+    }
+
+    // Keeps the revocation of a reused token even though the refresh itself fails
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public IssuedTokens rotate(String refreshToken) {
+        Claims claims = parseRefreshToken(refreshToken);
+        RefreshToken stored = findStored(claims);
+        if (stored.getRevokedAt() != null) {
+            throw new InvalidTokenException("Refresh token has been revoked");
+        }
+        if (stored.getReplacedBy() != null) {
+            log.warn("Refresh token reuse detected for user {}, revoking session {}", stored.getUserId(), stored.getFamilyId());
+            revokeSession(stored.getFamilyId());
+            throw new InvalidTokenException("Refresh token has already been used");
+        }
+
+        // The principal comes from the database, so role or status changes apply from this refresh on
+        UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!user.isActive() || !user.getId().equals(stored.getUserId())) {
+            revokeSession(stored.getFamilyId());
+            throw new InvalidTokenException("Refresh token is no longer valid for this account");
+        }
+
+        String successorId = UUID.randomUUID().toString();
+        stored.setReplacedBy(successorId);
+        return new IssuedTokens(user,
+                jwtUtils.generateJwtToken(user, stored.getFamilyId()),
+                issue(user, stored.getFamilyId(), successorId));
+    }
+
+    // Logout: ends the session the refresh token belongs to
+    @Transactional
+    public void revoke(String refreshToken) {
+        revokeSession(findStored(parseRefreshToken(refreshToken)).getFamilyId());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval:10000}")
+    public void syncRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap with the previous pass, a revocation may commit a little after its revoked_at
+        LocalDateTime since = lastSync != null
+                ? lastSync.minus(syncOverlap)
+                : now.minus(Duration.ofMillis(jwtUtils.getExpirationTime()));
+        for (RevokedFamily family : refreshTokenRepository.findFamiliesRevokedSince(since)) {
+            revocationList.revoke(family.familyId(), accessTokensExpireAfter(family.revokedAt()));
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.purge-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private Claims parseRefreshToken(String refreshToken) {
+        Claims claims = refreshToken != null ? jwtUtils.parseClaims(refreshToken) : null;
+        if (claims == null || !JwtUtils.isRefreshToken(claims) || claims.getId() == null) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+        return claims;
+    }
+
+    private RefreshToken findStored(Claims claims) {
+        return refreshTokenRepository.findForUpdateByTokenId(claims.getId())
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+    }
+
+    private String issue(UserDetailsImpl user, String sessionId, String tokenId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(Duration.ofMillis(jwtUtils.getRefreshExpirationTime()));
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenId(tokenId)
+                .familyId(sessionId)
+                .userId(user.getId())
+                .expiresAt(expiresAt)
+                .createdAt(now)
+                .build());
+        return jwtUtils.generateRefreshToken(user.getUsername(), tokenId, sessionId,
+                Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()));
+    }
+
+    private void revokeSession(String sessionId) {
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.revokeFamily(sessionId, now);
+        // Effective here at once; other instances follow on their next sync
+        revocationList.revoke(sessionId, accessTokensExpireAfter(now));
+    }
+
+    private long accessTokensExpireAfter(LocalDateTime revokedAt) {
+        return revokedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + jwtUtils.getExpirationTime();
+    }
+
+    public record IssuedTokens(UserDetailsImpl user, String accessToken, String refreshToken) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.dev.funcinema.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Local stand-in for a payment provider, for development and load tests. Every charge takes
+// the configured latency plus random jitter, and a configurable share of charges is declined.
+// Like a real provider it answers a repeated charge for the same purchase id with the first result.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final long latencyMs;
+
+    private final long jitterMs;
+
+    private final double declineRate;
+
+    private final Cache<Long, PaymentResult> results = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofDays(1))
+            .build();
+
+    public StubPaymentGateway(@Value("${payment.stub.latency:200}") long latencyMs,
+                              @Value("${payment.stub.jitter:100}") long jitterMs,
+                              @Value("${payment.stub.decline-rate:0.0}") double declineRate) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public PaymentResult charge(PaymentCharge charge) {
+        PaymentResult previous = results.getIfPresent(charge.purchaseId());
+        if (previous != null) {
+            return previous;
+        }
+        PaymentResult result = process(charge);
+        PaymentResult first = results.asMap().putIfAbsent(charge.purchaseId(), result);
+        return first != null ? first : result;
+    }
+
+    private PaymentResult process(PaymentCharge charge) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment interrupted", e);
+        }
+
+        if (charge.amount() == null || charge.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return PaymentResult.declined("Invalid amount");
+        }
+        if (random.nextDouble() < declineRate) {
+            return PaymentResult.declined("Declined by stub gateway");
+        }
+
+        String transactionId = UUID.randomUUID().toString();
+        log.debug("Stub gateway approved purchase {} after {} ms, transaction {}", charge.purchaseId(), delay, transactionId);
+        return PaymentResult.approved(transactionId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.dev.funcinema.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import com.dev.funcinema.repository.VerificationRepository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// Purges expired and used verification codes through BatchPurger. Only the jpa OTP store writes to
+// the verifications table, so with the in-memory store there is nothing to reap.
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "jpa")
+@RequiredArgsConstructor
+public class VerificationReaper {
+
+    private final VerificationRepository verificationRepository;
+
+    private final BatchPurger batchPurger;
+
+    @Scheduled(fixedDelayString = "${otp.reaper.interval:60000}", initialDelayString = "${otp.reaper.interval:60000}")
+    public void reap() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, IntUnaryOperator> steps = new LinkedHashMap<>();
+        steps.put("expired", limit -> verificationRepository.deleteExpiredBatch(now, limit));
+        steps.put("used", verificationRepository::deleteUsedBatch);
+        batchPurger.purge("verifications", steps);
+    }
+}
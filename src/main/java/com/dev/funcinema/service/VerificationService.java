@@ -3,22 +3,18 @@ package com.dev.funcinema.service;
 import com.dev.funcinema.exception.InvalidVerificationException;
 import com.dev.funcinema.exception.ResourceNotFoundException;
 import com.dev.funcinema.model.User;
-import com.dev.funcinema.model.Verification;
 import com.dev.funcinema.model.Verification.VerificationType;
 import com.dev.funcinema.repository.UserRepository;
-import com.dev.funcinema.repository.VerificationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.security.SecureRandom;
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -26,77 +22,60 @@ import java.util.concurrent.CompletableFuture;
 @RequiredArgsConstructor
 public class VerificationService {
 
-    private final VerificationRepository verificationRepository;
+    private final OtpStore otpStore;
 
     private final UserRepository userRepository;
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxService emailOutboxService;
+
+    private final OtpGenerator otpGenerator;
 
     @Value("${otp.expiration}")
     private long otpExpirationMs;
 
-    @Value("${otp.length}")
-    private int otpLength;
-
-    private final SecureRandom random = new SecureRandom();
+    // Issues the email and mobile codes of a new account in the caller's transaction: the store writes
+    // both codes at once and the email joins the outbox, so signup needs no transaction of its own here
+    @Transactional
+    public void sendVerifications(User user) {
+        String emailCode = otpGenerator.generate();
+        String mobileCode = otpGenerator.generate();
+        Map<VerificationType, String> codes = new EnumMap<>(VerificationType.class);
+        codes.put(VerificationType.EMAIL, emailCode);
+        codes.put(VerificationType.MOBILE, mobileCode);
+        otpStore.issueAll(user.getId(), codes, Duration.ofMillis(otpExpirationMs));
+
+        queueEmail(user, emailCode);
+        // The SMS goes out only once the account exists
+        TransactionCallbacks.afterCommit(() -> sendSms(user, mobileCode));
+    }
 
     @Async("virtualThreadTaskExecutor")
     @Transactional
     public void sendEmailVerification(User user) {
-        // Delete any existing unverified codes
-        verificationRepository.deleteByUserAndType(user, VerificationType.EMAIL);
-
-        // Generate OTP code
-        String otpCode = generateOTP();
-
-        // Create verification record
-        Verification verification = Verification.builder()
-                .user(user)
-                .code(otpCode)
-                .type(VerificationType.EMAIL)
-                .expiresAt(LocalDateTime.now().plusSeconds(otpExpirationMs / 1000))
-                .used(false)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        verificationRepository.save(verification);
-
-        // Send email
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Email Verification Code");
-        message.setText("Your verification code is: " + otpCode +
-                "\nThis code will expire in " + (otpExpirationMs / 60000) + " minutes.");
-
-        try {
-            mailSender.send(message);
-            log.info("Verification email sent to: {}", user.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send verification email: {}", e.getMessage());
-        }
+        // Replaces any existing unverified code
+        String otpCode = otpGenerator.generate();
+        otpStore.issue(user.getId(), VerificationType.EMAIL, otpCode, Duration.ofMillis(otpExpirationMs));
+        queueEmail(user, otpCode);
     }
 
+    // Not transactional: nothing here touches the database unless the store does, and JpaOtpStore has its own
     @Async("virtualThreadTaskExecutor")
-    @Transactional
     public void sendMobileVerification(User user) {
-        // Delete any existing unverified codes
-        verificationRepository.deleteByUserAndType(user, VerificationType.MOBILE);
-
-        // Generate OTP code
-        String otpCode = generateOTP();
-
-        // Create verification record
-        Verification verification = Verification.builder()
-                .user(user)
-                .code(otpCode)
-                .type(VerificationType.MOBILE)
-                .expiresAt(LocalDateTime.now().plusSeconds(otpExpirationMs / 1000))
-                .used(false)
-                .createdAt(LocalDateTime.now())
-                .build();
+        // Replaces any existing unverified code
+        String otpCode = otpGenerator.generate();
+        otpStore.issue(user.getId(), VerificationType.MOBILE, otpCode, Duration.ofMillis(otpExpirationMs));
+        sendSms(user, otpCode);
+    }
 
-        verificationRepository.save(verification);
+    // Queue the email in the caller's transaction, EmailOutboxDispatcher delivers it
+    private void queueEmail(User user, String otpCode) {
+        emailOutboxService.enqueue(user.getEmail(), "Email Verification Code",
+                "Your verification code is: " + otpCode +
+                "\nThis code will expire in " + (otpExpirationMs / 60000) + " minutes.");
+        log.info("Verification email queued for: {}", user.getEmail());
+    }
 
+    private void sendSms(User user, String otpCode) {
         // In a real implementation, this would integrate with an SMS service
         // For this example, we'll log the code
         log.info("SMS Verification code for {}: {}", user.getMobileNumber(), otpCode);
@@ -108,18 +87,7 @@ public class VerificationService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
 
-        Verification verification = verificationRepository
-                .findByUserAndTypeAndCodeAndUsedFalse(user, VerificationType.EMAIL, code)
-                .orElseThrow(() -> new InvalidVerificationException("Invalid or expired verification code"));
-
-        if (verification.isExpired()) {
-            verificationRepository.delete(verification);
-            throw new InvalidVerificationException("Verification code has expired");
-        }
-
-        // Mark as used
-        verification.setUsed(true);
-        verificationRepository.save(verification);
+        checkCode(user, VerificationType.EMAIL, code);
 
         // Update user
         user.setEmailVerified(true);
@@ -133,18 +101,7 @@ public class VerificationService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
 
-        Verification verification = verificationRepository
-                .findByUserAndTypeAndCodeAndUsedFalse(user, VerificationType.MOBILE, code)
-                .orElseThrow(() -> new InvalidVerificationException("Invalid or expired verification code"));
-
-        if (verification.isExpired()) {
-            verificationRepository.delete(verification);
-            throw new InvalidVerificationException("Verification code has expired");
-        }
-
-        // Mark as used
-        verification.setUsed(true);
-        verificationRepository.save(verification);
+        checkCode(user, VerificationType.MOBILE, code);
 
         // Update user
         user.setMobileVerified(true);
@@ -153,6 +110,15 @@ public class VerificationService {
         return true;
     }
 
+    private void checkCode(User user, VerificationType type, String code) {
+        switch (otpStore.verify(user.getId(), type, code)) {
+            case VALID -> {
+            }
+            case EXPIRED -> throw new InvalidVerificationException("Verification code has expired");
+            default -> throw new InvalidVerificationException("Invalid or expired verification code");
+        }
+    }
+
     @Async("virtualThreadTaskExecutor")
     @Transactional
     public CompletableFuture<Boolean> verifyEmailAsync(String username, String code) {
@@ -176,13 +142,4 @@ public class VerificationService {
             sendMobileVerification(user);
         }
     }
-
-    // OTP generation
-    private String generateOTP() {
-        StringBuilder otp = new StringBuilder();
-        for (int i = 0; i < otpLength; i++) {
-            otp.append(random.nextInt(10));
-        }
-        return otp.toString();
-    }
 }
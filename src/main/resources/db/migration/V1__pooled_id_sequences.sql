@@ -0,0 +1,24 @@
+-- Entity ids move from IDENTITY columns to pooled sequences (increment 50, matching allocationSize).
+-- Flyway runs before Hibernate, so on a fresh database the tables do not exist yet; the
+-- sequences are created either way and Hibernate's ddl-auto creates the tables afterwards.
+DO $$
+DECLARE
+    table_name text;
+    sequence_name text;
+    max_id bigint;
+BEGIN
+    FOREACH table_name IN ARRAY ARRAY['movies', 'purchases', 'users', 'roles', 'verifications', 'email_outbox'] LOOP
+        sequence_name := table_name || '_seq';
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', sequence_name);
+
+        max_id := NULL;
+        IF to_regclass(table_name) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', table_name);
+            EXECUTE format('SELECT max(id) FROM %I', table_name) INTO max_id;
+        END IF;
+
+        -- The next value handed out is the top of a block starting right after the current max id.
+        -- Even an empty table skips the initial value 1, so every block is a full 50 ids.
+        PERFORM setval(sequence_name::regclass, GREATEST(COALESCE(max_id, 0), 1));
+    END LOOP;
+END $$;
@@ -0,0 +1,9 @@
+-- Movies get an optimistic lock version and a last-modified time, the validators of conditional GETs.
+-- On a fresh database the table does not exist yet and Hibernate's ddl-auto creates both columns.
+DO $$
+BEGIN
+    IF to_regclass('movies') IS NOT NULL THEN
+        ALTER TABLE movies ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+        ALTER TABLE movies ADD COLUMN IF NOT EXISTS last_modified timestamp(6) with time zone NOT NULL DEFAULT now();
+    END IF;
+END $$;
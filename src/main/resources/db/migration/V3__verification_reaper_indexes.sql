@@ -0,0 +1,11 @@
+-- Indexes for the batched range deletes of the verification reaper. Used rows are few, so they get a
+-- partial index rather than a full one on the boolean.
+-- On a fresh database the table does not exist yet and Hibernate's ddl-auto creates both indexes
+-- (the partial one through Verification.UsedIndex).
+DO $$
+BEGIN
+    IF to_regclass('verifications') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_verifications_expires_at ON verifications (expires_at);
+        CREATE INDEX IF NOT EXISTS idx_verifications_used ON verifications (id) WHERE used;
+    END IF;
+END $$;
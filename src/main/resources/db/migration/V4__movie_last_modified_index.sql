@@ -0,0 +1,8 @@
+-- Index for the periodic sync of MovieSearchIndex, which reads the movies changed since its last pass.
+-- On a fresh database the table does not exist yet and Hibernate's ddl-auto creates the index.
+DO $$
+BEGIN
+    IF to_regclass('movies') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_movies_last_modified ON movies (last_modified);
+    END IF;
+END $$;
@@ -3,7 +3,8 @@ package com.dev.funcinema;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Test-only signing key, the real one comes from JWT_SECRET
+@SpringBootTest(properties = "jwt.secret=dGVzdC1vbmx5LWp3dC1zaWduaW5nLWtleS10ZXN0LW9ubHktand0LXNpZ25pbmcta2V5LXRlc3Qtb25seS1qd3Qt")
 class FunCinemaApplicationTests {
 
     @Test
@@ -0,0 +1,171 @@
+package com.dev.funcinema.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.model.Purchase;
+import com.dev.funcinema.model.Purchase.PaymentMethod;
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.repository.MovieRepository;
+import com.dev.funcinema.repository.PurchaseRepository;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.security.JwtUtils;
+import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.PaymentGateway;
+import com.dev.funcinema.service.PaymentGateway.PaymentResult;
+
+// Status codes of the purchase endpoints: a completed purchase is 201, and client errors answer with
+// their own status and the usual error body, not the catch-all 500: unknown purchases and movies
+// are 404, refused purchases 400.
+// Runs the application on an in-memory H2 database (application-h2.yml) with the payment gateway mocked.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class PurchaseControllerTest {
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    private User verified;
+
+    private User unverified;
+
+    private Movie movie;
+
+    @BeforeEach
+    void setUp() {
+        verified = userRepository.save(user("verified", "+6281234567893", true));
+        unverified = userRepository.save(user("unverified", "+6281234567894", false));
+        movie = movieRepository.save(Movie.builder()
+                .title("Manhunter")
+                .director("Michael Mann")
+                .releaseDate(LocalDate.of(1986, 8, 15))
+                .durationMinutes(120)
+                .rating(7.2)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        purchaseRepository.deleteAll();
+        movieRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void approvedPurchaseIsCreated() throws Exception {
+        when(paymentGateway.charge(any())).thenReturn(PaymentResult.approved("tx-controller"));
+
+        // The response is written on the async dispatch, which has to be let through as well
+        purchase(verified, movie.getId())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    void unknownPurchaseIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/purchases/{id}", 999_999L).header(HttpHeaders.AUTHORIZATION, bearer(verified)))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.message").value("Purchase not found with ID: 999999"));
+    }
+
+    @Test
+    void purchaseOfAnUnknownMovieIsNotFound() throws Exception {
+        purchase(verified, 999_999L)
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404));
+    }
+
+    @Test
+    void purchaseOfAnOwnedMovieIsABadRequest() throws Exception {
+        purchaseRepository.save(Purchase.builder()
+                .user(verified)
+                .movie(movie)
+                .amount(new BigDecimal("9.99"))
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .status(PurchaseStatus.COMPLETED)
+                .purchaseDate(LocalDateTime.now())
+                .build());
+
+        purchase(verified, movie.getId())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("You have already purchased this movie"));
+    }
+
+    @Test
+    void purchaseByAnUnverifiedUserIsABadRequest() throws Exception {
+        purchase(unverified, movie.getId())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+
+    private ResultActions purchase(User buyer, Long movieId) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/purchases")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(buyer))
+                        .header("Idempotency-Key", UUID.randomUUID().toString())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"movieId\":" + movieId + ",\"paymentMethod\":\"CREDIT_CARD\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private String bearer(User user) {
+        return "Bearer " + jwtUtils.generateJwtToken(UserDetailsImpl.build(user), UUID.randomUUID().toString());
+    }
+
+    private static User user(String username, String mobileNumber, boolean verified) {
+        return User.builder()
+                .username(username)
+                .password("secret")
+                .email(username + "@example.com")
+                .mobileNumber(mobileNumber)
+                .fullName("Purchase Tester")
+                .emailVerified(verified)
+                .mobileVerified(verified)
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package com.dev.funcinema.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.dev.funcinema.dto.MovieDTO;
+import com.dev.funcinema.dto.MovieSearchDTO;
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.model.Purchase;
+import com.dev.funcinema.model.Role;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.service.MovieMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Guards the fetch plans: listing, search, detail, authentication and purchase history must each
+// run a fixed number of SQL statements, however many movies, genres or purchases there are.
+// DTOs built from these entities must also stay usable once the session is gone.
+// Runs on an in-memory H2 database; the schema comes from the entities, not the Flyway migrations.
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class FetchPlanQueryCountTest {
+
+    private static final int MOVIES = 60;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    private Statistics statistics;
+
+    private Long movieId;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        Role role = entityManager.persist(Role.builder().name(Role.ERole.ROLE_USER).build());
+        User user = entityManager.persist(User.builder()
+                .username("buyer")
+                .password("secret")
+                .email("buyer@example.com")
+                .mobileNumber("+6281234567890")
+                .fullName("Heavy Buyer")
+                .roles(Set.of(role))
+                .build());
+        userId = user.getId();
+
+        for (int i = 0; i < MOVIES; i++) {
+            // Two genres matching "drama" per movie: a join would return every movie twice
+            Movie movie = entityManager.persist(Movie.builder()
+                    .title("Movie " + i)
+                    .director("Director " + i)
+                    .genres(Set.of("Drama", "Melodrama", "Genre " + i))
+                    .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                    .durationMinutes(90)
+                    .rating(1.0 + i % 9)
+                    .build());
+            movieId = movie.getId();
+
+            entityManager.persist(Purchase.builder()
+                    .user(user)
+                    .movie(movie)
+                    .amount(new BigDecimal("9.99"))
+                    .paymentMethod(Purchase.PaymentMethod.CREDIT_CARD)
+                    .status(Purchase.PurchaseStatus.COMPLETED)
+                    .purchaseDate(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listingLoadsMoviesWithGenresInOneQuery() {
+        List<Movie> movies = movieRepository.findAllWithGenresBy();
+        movies.forEach(movie -> movie.getGenres().size());
+
+        assertThat(movies).hasSize(MOVIES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void detailLoadsGenresWithTheMovie() {
+        Movie movie = movieRepository.findWithGenresById(movieId).orElseThrow();
+
+        assertThat(movie.getGenres()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pagedSearchLoadsGenresInOneBatch() {
+        MovieSearchDTO search = MovieSearchDTO.builder().genre("drama").size(20).sortBy("id").build();
+        Page<Movie> page = movieRepository.findAll(MovieSpecifications.buildSpecification(search),
+                PageRequest.of(0, 20, Sort.by("id")));
+        page.forEach(movie -> movie.getGenres().size());
+
+        // Each movie matches the genre filter once, without DISTINCT
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(page.getTotalElements()).isEqualTo(MOVIES);
+        // Page query, count query and one batch of genres for the whole page
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void keysetWalkOverTiedRatingsVisitsEveryMovieOnce() {
+        // Ratings repeat every nine movies, so most slices end inside a run of equal keys
+        for (boolean ascending : new boolean[] {true, false}) {
+            Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+            Sort sort = Sort.by(direction, "rating").and(Sort.by(direction, "id"));
+            List<Long> visited = new ArrayList<>();
+            MovieSearchCursor cursor = null;
+            while (true) {
+                List<Movie> slice = movieRepository.findBy(
+                        cursor == null ? Specification.where(null) : MovieSpecifications.seekAfter(cursor),
+                        query -> query.sortBy(sort).limit(7).all());
+                if (slice.isEmpty()) {
+                    break;
+                }
+                slice.forEach(movie -> visited.add(movie.getId()));
+                cursor = MovieSearchCursor.after(slice.get(slice.size() - 1), "rating", ascending);
+            }
+
+            assertThat(visited).hasSize(MOVIES).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void movieDtoSerializesAfterTheSessionIsGone() throws Exception {
+        // The plain lookup leaves genres lazy; the conversion must copy them while the session is open
+        MovieDTO dto = MovieMapper.toDTO(movieRepository.findById(movieId).orElseThrow());
+        entityManager.clear();
+
+        String json = new ObjectMapper().findAndRegisterModules().writeValueAsString(dto);
+
+        assertThat(json).contains("\"Drama\"", "\"Melodrama\"", "\"Genre " + (MOVIES - 1) + "\"");
+    }
+
+    @Test
+    void authenticationLoadsRolesWithTheUser() {
+        User user = userRepository.findWithRolesByUsername("buyer").orElseThrow();
+
+        assertThat(user.getRoles()).extracting(Role::getName).containsExactly(Role.ERole.ROLE_USER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void userLookupDoesNotLoadRoles() {
+        userRepository.findByUsername("buyer").orElseThrow();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void purchaseHistoryPageIsOneProjectionQuery() {
+        List<PurchaseResponse> page = purchaseRepository.findHistory(userId, Limit.of(21));
+
+        assertThat(page).hasSize(21);
+        assertThat(page.get(0).getMovieTitle()).isEqualTo("Movie " + (MOVIES - 1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -0,0 +1,278 @@
+package com.dev.funcinema.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.dev.funcinema.config.RateLimitProperties;
+import com.dev.funcinema.config.RateLimitProperties.ClientKey;
+import com.dev.funcinema.config.RateLimitProperties.Limit;
+import com.dev.funcinema.model.Role;
+import com.dev.funcinema.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+// RateLimitFilter in front of a recording filter chain: a body read for its username reaches the
+// controller unchanged, blocking or through a read listener, and principal routes are keyed on the
+// subject of a verified bearer token only.
+class RateLimitFilterTest {
+
+    private static final String LOGIN_BODY = "{\"password\":\"secret\",\"username\":\"alice\"}";
+
+    private JwtUtils jwtUtils;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "dGVzdC1vbmx5LWp3dC1zaWduaW5nLWtleS10ZXN0LW9ubHktand0LXNpZ25pbmcta2V5LXRlc3Qtb25seS1qd3Qt");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 900000);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBodyBytes(64);
+        properties.getRoutes().put("login", route("/api/auth/login", ClientKey.USERNAME, 100, 1));
+        properties.getRoutes().put("search", route("/api/movies/search/**", ClientKey.PRINCIPAL, 100, 1));
+
+        filter = new RateLimitFilter(properties, new VerifiedTokenCache(jwtUtils, meterRegistry, 100, 300000),
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry);
+    }
+
+    @Test
+    void bodyReadForTheUsernameIsReplayedToTheController() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+
+        MockHttpServletResponse response = filter(login(LOGIN_BODY, "10.0.0.1"),
+                request -> received.set(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8)));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(received.get()).isEqualTo(LOGIN_BODY);
+    }
+
+    @Test
+    void bodyIsReplayedThroughTheReader() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+
+        filter(login(LOGIN_BODY, "10.0.0.1"), request -> received.set(request.getReader().readLine()));
+
+        assertThat(received.get()).isEqualTo(LOGIN_BODY);
+    }
+
+    @Test
+    void usernameBucketIsSharedAcrossAddresses() throws Exception {
+        assertThat(filter(login(LOGIN_BODY, "10.0.0.1"), request -> { }).getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        MockHttpServletResponse refused = filter(login(LOGIN_BODY, "10.0.0.2"), request -> { });
+
+        assertThat(refused.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+    }
+
+    @Test
+    void bodyBeyondTheLimitIsReplayedWholeAndNotKeyedByUsername() throws Exception {
+        String body = "{\"username\":\"alice\",\"padding\":\"" + "x".repeat(200) + "\"}";
+        AtomicReference<String> received = new AtomicReference<>();
+
+        for (String address : List.of("10.0.0.1", "10.0.0.2")) {
+            MockHttpServletResponse response = filter(login(body, address),
+                    request -> received.set(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8)));
+            assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+            assertThat(received.get()).isEqualTo(body);
+        }
+    }
+
+    @Test
+    void readListenerReadsTheBufferedBodyBeforeAllDataRead() throws Exception {
+        MockHttpServletRequest request = login(LOGIN_BODY, "10.0.0.1");
+        request.setAsyncSupported(true);
+        NonBlockingInputStream original = new NonBlockingInputStream(LOGIN_BODY.getBytes(StandardCharsets.UTF_8));
+        HttpServletRequest nonBlocking = new HttpServletRequestWrapper(request) {
+            @Override
+            public ServletInputStream getInputStream() {
+                return original;
+            }
+        };
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+
+        filter.doFilter(nonBlocking, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[8];
+                    while (in.isReady() && !in.isFinished()) {
+                        int read = in.read(buffer);
+                        if (read > 0) {
+                            received.write(buffer, 0, read);
+                        }
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(in.isFinished());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+        });
+
+        assertThat(original.listener).isNotNull();
+        assertThat(received.toString(StandardCharsets.UTF_8)).isEqualTo(LOGIN_BODY);
+        assertThat(allDataRead).isTrue();
+    }
+
+    @Test
+    void principalRoutesAreKeyedOnTheVerifiedSubjectNotTheApiKeyHeader() throws Exception {
+        String token = jwtUtils.generateJwtToken(UserDetailsImpl.build(user("alice")), UUID.randomUUID().toString());
+
+        MockHttpServletRequest first = search("10.0.0.1");
+        first.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        first.addHeader("X-API-Key", "key-1");
+        MockHttpServletRequest second = search("10.0.0.2");
+        second.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        second.addHeader("X-API-Key", "key-2");
+
+        assertThat(filter(first, request -> { }).getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(filter(second, request -> { }).getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    @Test
+    void forgedTokenDoesNotDrainTheBucketOfTheUserItNames() throws Exception {
+        String token = jwtUtils.generateJwtToken(UserDetailsImpl.build(user("alice")), UUID.randomUUID().toString());
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "forged";
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = search("10.0.0." + (i + 2));
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + forged);
+            assertThat(filter(request, r -> { }).getStatus()).isEqualTo(HttpStatus.OK.value());
+        }
+
+        MockHttpServletRequest genuine = search("10.0.0.1");
+        genuine.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        assertThat(filter(genuine, request -> { }).getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    private MockHttpServletResponse filter(HttpServletRequest request, ControllerStub controller) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> controller.handle((HttpServletRequest) req);
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest login(String body, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletRequest search(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/movies/search/title");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static RateLimitProperties.Route route(String path, ClientKey clientKey, int perIp, int perClient) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setPaths(List.of(path));
+        route.setClientKey(clientKey);
+        route.setPerIp(limit(perIp));
+        route.setPerClient(limit(perClient));
+        return route;
+    }
+
+    private static Limit limit(int capacity) {
+        Limit limit = new Limit();
+        limit.setCapacity(capacity);
+        limit.setPeriod(60000);
+        return limit;
+    }
+
+    private static User user(String username) {
+        return User.builder()
+                .id(1L)
+                .username(username)
+                .password("secret")
+                .email(username + "@example.com")
+                .roles(Set.of(Role.builder().id(1).name(Role.ERole.ROLE_USER).build()))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface ControllerStub {
+
+        void handle(HttpServletRequest request) throws IOException;
+    }
+
+    // Behaves like a container's stream for a body that has fully arrived: the filter reads it all
+    // blocking, so a listener set afterwards is told at once that all data has been read
+    private static final class NonBlockingInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream body;
+
+        private ReadListener listener;
+
+        NonBlockingInputStream(byte[] body) {
+            this.body = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public int read() {
+            return body.read();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return body.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.listener = readListener;
+            try {
+                if (isFinished()) {
+                    readListener.onAllDataRead();
+                } else {
+                    readListener.onDataAvailable();
+                }
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.dev.funcinema.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// The arithmetic of TokenBucket's single timestamp: bursts up to capacity, an even refill, exact
+// waits on refusal, no credit for idle time beyond a full bucket, and no lost or extra tokens when
+// threads race on the compare-and-set.
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstOfCapacityThenWaitForOneInterval() {
+        TokenBucket bucket = new TokenBucket(3, 3 * SECOND, 0);
+
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isZero();
+        assertThat(bucket.tryConsume(0)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(3, 3 * SECOND, 0);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryConsume(0);
+        }
+
+        assertThat(bucket.tryConsume(SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(bucket.tryConsume(SECOND)).isZero();
+        assertThat(bucket.tryConsume(SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void refusalDoesNotTakeAToken() {
+        TokenBucket bucket = new TokenBucket(1, SECOND, 0);
+        bucket.tryConsume(0);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryConsume(0)).isEqualTo(SECOND);
+        }
+        assertThat(bucket.tryConsume(SECOND)).isZero();
+    }
+
+    @Test
+    void idleTimeNeverBuysMoreThanAFullBucket() {
+        TokenBucket bucket = new TokenBucket(3, 3 * SECOND, 0);
+        long later = 3600 * SECOND;
+
+        assertThat(bucket.tryConsume(later)).isZero();
+        assertThat(bucket.tryConsume(later)).isZero();
+        assertThat(bucket.tryConsume(later)).isZero();
+        assertThat(bucket.tryConsume(later)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void concurrentCallersTakeExactlyTheCapacity() throws Exception {
+        int capacity = 1000;
+        int threads = 8;
+        int attemptsPerThread = 500;
+        TokenBucket bucket = new TokenBucket(capacity, 1000 * SECOND, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int taken = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (bucket.tryConsume(0) == 0) {
+                            taken++;
+                        }
+                    }
+                    return taken;
+                }));
+            }
+            start.countDown();
+
+            int taken = 0;
+            for (Future<Integer> result : results) {
+                taken += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(taken).isEqualTo(capacity);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.dev.funcinema.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Revocation checks of TokenRevocationList: the Bloom filter may only ever let a live session through
+// to the exact lookup, never revoke it, and revocations end once their access tokens have expired.
+class TokenRevocationListTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void revokedSessionIsRevokedUntilItsAccessTokensExpire() {
+        TokenRevocationList revocationList = new TokenRevocationList(meterRegistry, 1000, 0.01);
+
+        revocationList.revoke("session-1", System.currentTimeMillis() + 60_000);
+
+        assertThat(revocationList.isRevoked("session-1")).isTrue();
+        assertThat(revocationList.isRevoked("session-2")).isFalse();
+        assertThat(revocationList.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void filterHitForALiveSessionFallsThroughToTheExactLookup() {
+        // One 64-bit word for the whole filter, so a handful of revocations sets nearly every bit
+        TokenRevocationList revocationList = new TokenRevocationList(meterRegistry, 1, 0.5);
+        long until = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 20; i++) {
+            revocationList.revoke("revoked-" + i, until);
+        }
+
+        List<String> liveSessions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            liveSessions.add("live-" + i);
+        }
+
+        assertThat(liveSessions).noneMatch(revocationList::isRevoked);
+        assertThat(meterRegistry.counter("token.revocation.false-positives").count()).isPositive();
+        assertThat(revocationList.isRevoked("revoked-0")).isTrue();
+    }
+
+    @Test
+    void revocationLapsesOnceItsAccessTokensHaveExpired() {
+        TokenRevocationList revocationList = new TokenRevocationList(meterRegistry, 1000, 0.01);
+
+        revocationList.revoke("session-1", System.currentTimeMillis() - 1);
+
+        assertThat(revocationList.isRevoked("session-1")).isFalse();
+    }
+
+    @Test
+    void sweepDropsLapsedSessionsAndKeepsTheOthers() {
+        TokenRevocationList revocationList = new TokenRevocationList(meterRegistry, 1000, 0.01);
+        revocationList.revoke("lapsed", System.currentTimeMillis() - 1);
+        revocationList.revoke("current", System.currentTimeMillis() + 60_000);
+
+        revocationList.sweep();
+
+        assertThat(meterRegistry.get("token.revocation.size").gauge().value()).isEqualTo(1);
+        assertThat(revocationList.isRevoked("current")).isTrue();
+        assertThat(revocationList.isRevoked("lapsed")).isFalse();
+    }
+
+    @Test
+    void laterRevocationOfTheSameSessionExtendsIt() {
+        TokenRevocationList revocationList = new TokenRevocationList(meterRegistry, 1000, 0.01);
+
+        revocationList.revoke("session-1", System.currentTimeMillis() + 60_000);
+        revocationList.revoke("session-1", System.currentTimeMillis() - 1);
+
+        assertThat(revocationList.isRevoked("session-1")).isTrue();
+    }
+}
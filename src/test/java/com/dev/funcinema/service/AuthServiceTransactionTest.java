@@ -0,0 +1,116 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dev.funcinema.dto.AuthResponse;
+import com.dev.funcinema.dto.LoginRequest;
+import com.dev.funcinema.dto.RegisterRequest;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.repository.EmailOutboxRepository;
+import com.dev.funcinema.repository.RefreshTokenRepository;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.repository.VerificationRepository;
+
+// Registration and login hash and verify passwords with no transaction open, so no pooled connection
+// waits on BCrypt; the user is still saved and the login still recorded in the short transaction after.
+// Runs the application on an in-memory H2 database (application-h2.yml).
+@SpringBootTest
+@ActiveProfiles("h2")
+class AuthServiceTransactionTest {
+
+    private static final String PASSWORD = "correct horse battery";
+
+    @MockitoSpyBean
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VerificationRepository verificationRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    // Whether a transaction was active on each call to the password encoder
+    private final List<Boolean> hashedInTransaction = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any());
+        doAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).matches(any(), anyString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        refreshTokenRepository.deleteAll();
+        verificationRepository.deleteAll();
+        emailOutboxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void registrationHashesThePasswordBeforeItsTransaction() {
+        User user = authService.registerUserAsync(registration()).join();
+
+        assertThat(hashedInTransaction).isNotEmpty().doesNotContain(true);
+        assertThat(userRepository.findByUsername("hasher")).get()
+                .extracting(User::getId).isEqualTo(user.getId());
+    }
+
+    @Test
+    void loginVerifiesThePasswordOutsideAnyTransaction() {
+        User user = authService.registerUser(registration());
+        user.setEmailVerified(true);
+        user.setMobileVerified(true);
+        userRepository.save(user);
+        hashedInTransaction.clear();
+
+        AuthResponse response = authService.authenticateUserAsync(
+                LoginRequest.builder().username("hasher").password(PASSWORD).build()).join();
+
+        assertThat(hashedInTransaction).isNotEmpty().doesNotContain(true);
+        assertThat(response.getRefreshToken()).isNotNull();
+        assertThat(userRepository.findByUsername("hasher").orElseThrow().getLastLoginAt()).isNotNull();
+    }
+
+    private static RegisterRequest registration() {
+        return RegisterRequest.builder()
+                .username("hasher")
+                .password(PASSWORD)
+                .email("hasher@example.com")
+                .mobileNumber("+6281234567895")
+                .fullName("Password Hasher")
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.dev.funcinema.repository.PurchaseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Staleness of EntitlementService's per-user sets: a set in constant use, and patched by local
+// grants, is still reloaded once max-staleness has passed since it was loaded, so purchases that
+// another instance completed are seen.
+class EntitlementServiceTest {
+
+    private static final long MAX_STALENESS_MS = 500;
+
+    private final PurchaseRepository purchaseRepository = mock(PurchaseRepository.class);
+
+    private final EntitlementService entitlementService = new EntitlementService(purchaseRepository,
+            new SimpleMeterRegistry(), 100, MAX_STALENESS_MS);
+
+    @Test
+    void setInUseIsReloadedOnceItIsStale() throws Exception {
+        // Movie 7 is bought on another instance after this one has loaded the set
+        when(purchaseRepository.findMovieIdsByUserIdAndStatus(1L, PurchaseStatus.COMPLETED))
+                .thenReturn(List.of(3L), List.of(3L, 7L));
+
+        assertThat(entitlementService.ownsMovie(1L, 7L)).isFalse();
+        Thread.sleep(MAX_STALENESS_MS * 3 / 5);
+        // Neither a read nor a local grant restarts the clock
+        assertThat(entitlementService.ownsMovie(1L, 7L)).isFalse();
+        entitlementService.grantAfterCommit(1L, 5L);
+        assertThat(entitlementService.ownsMovie(1L, 5L)).isTrue();
+        Thread.sleep(MAX_STALENESS_MS * 3 / 5);
+
+        assertThat(entitlementService.ownsMovie(1L, 7L)).isTrue();
+        verify(purchaseRepository, times(2)).findMovieIdsByUserIdAndStatus(eq(1L), eq(PurchaseStatus.COMPLETED));
+    }
+}
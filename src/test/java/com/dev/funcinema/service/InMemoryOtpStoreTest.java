@@ -0,0 +1,112 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.dev.funcinema.model.Verification.VerificationType;
+import com.dev.funcinema.service.OtpStore.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The timing wheel of InMemoryOtpStore: a code verifies once, expires on time, and each tick evicts
+// only codes that have expired. Runs on a 10 ms tick and a four-bucket wheel, so one revolution is
+// 40 ms and a code living longer than that has to survive its bucket being visited.
+class InMemoryOtpStoreTest {
+
+    private static final long USER_ID = 42L;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private InMemoryOtpStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new InMemoryOtpStore(meterRegistry, 10, 4);
+    }
+
+    @Test
+    void codeVerifiesOnlyOnce() {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "123456")).isEqualTo(Result.VALID);
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "123456")).isEqualTo(Result.INVALID);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void wrongCodeLeavesTheIssuedCodeUsable() {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofMinutes(5));
+
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "654321")).isEqualTo(Result.INVALID);
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, null)).isEqualTo(Result.INVALID);
+        assertThat(store.verify(USER_ID, VerificationType.MOBILE, "123456")).isEqualTo(Result.INVALID);
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "123456")).isEqualTo(Result.VALID);
+    }
+
+    @Test
+    void expiredCodeIsRejectedBeforeAnyTick() throws InterruptedException {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofMillis(20));
+        Thread.sleep(40);
+
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "123456")).isEqualTo(Result.EXPIRED);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void tickEvictsExpiredCodes() throws InterruptedException {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofMillis(20));
+        store.issue(USER_ID, VerificationType.MOBILE, "654321", Duration.ofMillis(20));
+        Thread.sleep(60);
+
+        store.advance();
+
+        assertThat(store.size()).isZero();
+        assertThat(meterRegistry.counter("otp.store.expired").count()).isEqualTo(2);
+    }
+
+    @Test
+    void codeOutlivingARevolutionSurvivesItsBucketBeingCleared() throws InterruptedException {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofSeconds(5));
+
+        // Several revolutions, each visiting the bucket the code is filed in
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(15);
+            store.advance();
+        }
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("otp.store.expired").count()).isZero();
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "123456")).isEqualTo(Result.VALID);
+    }
+
+    @Test
+    void tickAfterALongPauseEvictsEveryExpiredCode() throws InterruptedException {
+        store.issue(USER_ID, VerificationType.EMAIL, "123456", Duration.ofMillis(10));
+        store.issue(USER_ID, VerificationType.MOBILE, "654321", Duration.ofMillis(30));
+        // Far more than one revolution without a tick
+        Thread.sleep(150);
+
+        store.advance();
+
+        assertThat(store.size()).isZero();
+        assertThat(meterRegistry.counter("otp.store.expired").count()).isEqualTo(2);
+    }
+
+    @Test
+    void reissuedCodeReplacesTheEarlierOne() throws InterruptedException {
+        store.issue(USER_ID, VerificationType.EMAIL, "111111", Duration.ofMillis(20));
+        store.issue(USER_ID, VerificationType.EMAIL, "222222", Duration.ofSeconds(5));
+        Thread.sleep(40);
+
+        // The first code's bucket is cleared without evicting its replacement
+        store.advance();
+
+        assertThat(meterRegistry.counter("otp.store.expired").count()).isZero();
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "111111")).isEqualTo(Result.INVALID);
+        assertThat(store.verify(USER_ID, VerificationType.EMAIL, "222222")).isEqualTo(Result.VALID);
+    }
+}
@@ -0,0 +1,71 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.repository.MovieRepository;
+
+// MovieSearchIndex picks up movies written around it, as by another instance: the periodic sync adds
+// inserted movies, re-indexes updated ones and drops deleted ones.
+// Runs the application on an in-memory H2 database (application-h2.yml).
+@SpringBootTest
+@ActiveProfiles("h2")
+class MovieSearchIndexSyncTest {
+
+    @Autowired
+    private MovieSearchIndex movieSearchIndex;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @BeforeEach
+    void setUp() {
+        movieSearchIndex.sync();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll();
+        movieSearchIndex.sync();
+    }
+
+    @Test
+    void syncFollowsChangesMadeOutsideThisInstance() {
+        // Saved through the repository, so this instance's write paths never tell the index
+        Movie movie = movieRepository.save(Movie.builder()
+                .title("Thief")
+                .director("Michael Mann")
+                .genres(Set.of("Crime"))
+                .releaseDate(LocalDate.of(1981, 3, 27))
+                .durationMinutes(122)
+                .rating(7.4)
+                .build());
+        assertThat(movieSearchIndex.findCandidates("thief", null, null)).doesNotContain(movie.getId());
+
+        movieSearchIndex.sync();
+        assertThat(movieSearchIndex.isReady()).isTrue();
+        assertThat(movieSearchIndex.findCandidates("thief", "mann", "crime")).containsExactly(movie.getId());
+
+        movie.setTitle("Collateral");
+        movie.setLastModified(Instant.now());
+        movieRepository.save(movie);
+        movieSearchIndex.sync();
+        assertThat(movieSearchIndex.findCandidates("thief", null, null)).doesNotContain(movie.getId());
+        assertThat(movieSearchIndex.findCandidates("collateral", null, null)).containsExactly(movie.getId());
+
+        movieRepository.deleteById(movie.getId());
+        movieSearchIndex.sync();
+        assertThat(movieSearchIndex.findCandidates("collateral", null, null)).isEmpty();
+    }
+}
@@ -0,0 +1,200 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.dev.funcinema.dto.PurchaseRequest;
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.exception.IdempotencyKeyReusedException;
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.model.Purchase;
+import com.dev.funcinema.model.Purchase.PaymentMethod;
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.repository.MovieRepository;
+import com.dev.funcinema.repository.PurchaseRepository;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.PaymentGateway.PaymentResult;
+
+// Replays of a purchase with the same idempotency key: the same request gets the first purchase back
+// without a second charge, a different request under the same key is rejected, whether the key is
+// still in this instance's memory or only in the database, and two attempts racing on different
+// instances end up with one purchase.
+// Runs the application on an in-memory H2 database (application-h2.yml) with the payment gateway mocked.
+@SpringBootTest
+@ActiveProfiles("h2")
+class PurchaseIdempotencyTest {
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @MockitoSpyBean
+    private PurchaseIdempotencyStore purchaseIdempotencyStore;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    private User user;
+
+    private Movie movie;
+
+    private Movie otherMovie;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("replayer")
+                .password("secret")
+                .email("replayer@example.com")
+                .mobileNumber("+6281234567890")
+                .fullName("Careful Retrier")
+                .emailVerified(true)
+                .mobileVerified(true)
+                .build());
+        movie = movieRepository.save(movie("Heat"));
+        otherMovie = movieRepository.save(movie("Ronin"));
+
+        authenticate();
+        when(paymentGateway.charge(any())).thenReturn(PaymentResult.approved("tx-1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        purchaseRepository.deleteAll();
+        movieRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sameRequestReplaysTheFirstPurchaseWithoutChargingAgain() {
+        String key = UUID.randomUUID().toString();
+
+        PurchaseResponse first = purchaseService.purchaseMovie(request(movie, PaymentMethod.CREDIT_CARD, key));
+        PurchaseResponse replay = purchaseService.purchaseMovie(request(movie, PaymentMethod.CREDIT_CARD, key));
+
+        assertThat(first.getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+        assertThat(replay.getId()).isEqualTo(first.getId());
+        assertThat(purchaseRepository.count()).isEqualTo(1);
+        verify(paymentGateway, times(1)).charge(any());
+    }
+
+    @Test
+    void concurrentAttemptsWithTheSameKeyOnSeparateInstancesShareOnePurchase() throws Exception {
+        // Each attempt runs as if on its own instance, with nothing shared in memory
+        doAnswer(invocation -> invocation.<Supplier<CompletableFuture<PurchaseResponse>>>getArgument(3).get())
+                .when(purchaseIdempotencyStore).execute(any(), any(), any(), any());
+        String key = UUID.randomUUID().toString();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<PurchaseResponse>> attempts = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                attempts.add(executor.submit(() -> {
+                    authenticate();
+                    start.await();
+                    return purchaseService.purchaseMovie(request(movie, PaymentMethod.CREDIT_CARD, key));
+                }));
+            }
+            start.countDown();
+
+            PurchaseResponse first = attempts.get(0).get(10, TimeUnit.SECONDS);
+            PurchaseResponse second = attempts.get(1).get(10, TimeUnit.SECONDS);
+            assertThat(second.getId()).isEqualTo(first.getId());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(purchaseRepository.count()).isEqualTo(1);
+        verify(paymentGateway, times(1)).charge(any());
+    }
+
+    @Test
+    void differentMovieUnderTheSameKeyIsRejected() {
+        String key = UUID.randomUUID().toString();
+        purchaseService.purchaseMovie(request(movie, PaymentMethod.CREDIT_CARD, key));
+
+        assertThatThrownBy(() -> purchaseService.purchaseMovie(request(otherMovie, PaymentMethod.CREDIT_CARD, key)))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(purchaseRepository.count()).isEqualTo(1);
+        verify(paymentGateway, times(1)).charge(any());
+    }
+
+    @Test
+    void differentPaymentMethodUnderAKeyOnlyTheDatabaseKnowsIsRejected() {
+        // As left by another instance, or by this one before a restart
+        String key = UUID.randomUUID().toString();
+        PurchaseResponse stored = purchaseService.purchaseMovie(request(movie, PaymentMethod.PAYPAL, "seed-" + key));
+        Purchase purchase = purchaseRepository.findById(stored.getId()).orElseThrow();
+        purchase.setIdempotencyKey(key);
+        purchaseRepository.save(purchase);
+
+        assertThatThrownBy(() -> purchaseService.purchaseMovie(request(movie, PaymentMethod.CREDIT_CARD, key)))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+
+        PurchaseResponse replay = purchaseService.purchaseMovie(request(movie, PaymentMethod.PAYPAL, key));
+        assertThat(replay.getId()).isEqualTo(stored.getId());
+        verify(paymentGateway, times(1)).charge(any());
+    }
+
+    private void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                UserDetailsImpl.build(user), null, UserDetailsImpl.build(user).getAuthorities()));
+    }
+
+    private static Movie movie(String title) {
+        return Movie.builder()
+                .title(title)
+                .director("Michael Mann")
+                .releaseDate(LocalDate.of(1995, 12, 15))
+                .durationMinutes(170)
+                .rating(8.3)
+                .build();
+    }
+
+    private static PurchaseRequest request(Movie movie, PaymentMethod paymentMethod, String idempotencyKey) {
+        return PurchaseRequest.builder()
+                .movieId(movie.getId())
+                .paymentMethod(paymentMethod)
+                .idempotencyKey(idempotencyKey)
+                .build();
+    }
+}
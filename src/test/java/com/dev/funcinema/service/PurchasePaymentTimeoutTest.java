@@ -0,0 +1,250 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.dev.funcinema.dto.PurchaseRequest;
+import com.dev.funcinema.dto.PurchaseResponse;
+import com.dev.funcinema.model.Movie;
+import com.dev.funcinema.model.Purchase;
+import com.dev.funcinema.model.Purchase.PaymentMethod;
+import com.dev.funcinema.model.Purchase.PurchaseStatus;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.repository.MovieRepository;
+import com.dev.funcinema.repository.PurchaseRepository;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.PaymentGateway.PaymentResult;
+
+// A gateway that answers after payment.timeout must not leave the customer charged without the movie:
+// the purchase stays PENDING and the late answer completes it. Purchases left PENDING are settled by
+// the reconciler, a retry after either sees the settled purchase, and a full gateway executor must
+// not fail a purchase the gateway approved.
+// Runs the application on an in-memory H2 database with the payment gateway mocked and a gateway
+// executor that runs one charge at a time with room for one more.
+@SpringBootTest(properties = {
+        "payment.timeout=500",
+        "executors.payments.max-concurrency=1",
+        "executors.payments.max-queued=1"
+})
+@ActiveProfiles("h2")
+class PurchasePaymentTimeoutTest {
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private EntitlementService entitlementService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private PurchaseRepository purchaseRepository;
+
+    private final CountDownLatch gatewayReleased = new CountDownLatch(1);
+
+    private User user;
+
+    private Movie movie;
+
+    private Movie otherMovie;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .username("patient")
+                .password("secret")
+                .email("patient@example.com")
+                .mobileNumber("+6281234567891")
+                .fullName("Patient Buyer")
+                .emailVerified(true)
+                .mobileVerified(true)
+                .build());
+        movie = movieRepository.save(movie("Collateral"));
+        otherMovie = movieRepository.save(movie("Thief"));
+
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatewayReleased.countDown();
+        SecurityContextHolder.clearContext();
+        purchaseRepository.deleteAll();
+        movieRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void lateApprovalCompletesThePendingPurchase() throws Exception {
+        answerAfterRelease(PaymentResult.approved("tx-late"));
+
+        PurchaseResponse response = purchaseService.purchaseMovie(request(movie));
+
+        assertThat(response.getStatus()).isEqualTo(PurchaseStatus.PENDING);
+        assertThat(statusOf(response.getId())).isEqualTo(PurchaseStatus.PENDING);
+
+        gatewayReleased.countDown();
+        Purchase purchase = awaitSettled(response.getId());
+        assertThat(purchase.getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+        assertThat(purchase.getTransactionId()).isEqualTo("tx-late");
+        assertThat(entitlementService.ownsMovie(user.getId(), movie.getId())).isTrue();
+    }
+
+    @Test
+    void retryAfterSettlementGetsTheSettledPurchaseInsteadOfPending() throws Exception {
+        answerAfterRelease(PaymentResult.approved("tx-settled"));
+        PurchaseRequest request = request(movie);
+
+        PurchaseResponse pending = purchaseService.purchaseMovie(request);
+        assertThat(pending.getStatus()).isEqualTo(PurchaseStatus.PENDING);
+        gatewayReleased.countDown();
+        awaitSettled(pending.getId());
+
+        PurchaseResponse retry = purchaseService.purchaseMovie(request);
+
+        assertThat(retry.getId()).isEqualTo(pending.getId());
+        assertThat(retry.getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+        assertThat(retry.getTransactionId()).isEqualTo("tx-settled");
+        verify(paymentGateway, times(1)).charge(any());
+    }
+
+    @Test
+    void lateDeclineFailsThePendingPurchase() throws Exception {
+        answerAfterRelease(PaymentResult.declined("Insufficient funds"));
+
+        PurchaseResponse response = purchaseService.purchaseMovie(request(movie));
+        gatewayReleased.countDown();
+
+        Purchase purchase = awaitSettled(response.getId());
+        assertThat(purchase.getStatus()).isEqualTo(PurchaseStatus.FAILED);
+        assertThat(purchase.getFailureReason()).isEqualTo("Insufficient funds");
+    }
+
+    @Test
+    void approvalIsCompletedWhileAnotherChargeWaitsForTheGatewayExecutor() throws Exception {
+        answerAfterRelease(PaymentResult.approved("tx-busy"));
+
+        // The first charge holds the only permit and the second fills the queue, so there is no room
+        // left on the gateway executor when the first answer has to be completed
+        CompletableFuture<PurchaseResponse> first = purchaseService.purchaseMovieAsync(request(movie));
+        CompletableFuture<PurchaseResponse> second = purchaseService.purchaseMovieAsync(request(otherMovie));
+        gatewayReleased.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+        assertThat(second.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+    }
+
+    @Test
+    void reconcilerCompletesAStalePendingPurchase() {
+        Purchase stale = purchaseRepository.save(pendingSince(LocalDateTime.now().minusHours(1)));
+        when(paymentGateway.charge(any())).thenReturn(PaymentResult.approved("tx-reconciled"));
+
+        int reconciled = purchaseService.reconcileStalePurchases(LocalDateTime.now().minusMinutes(5), 10);
+
+        assertThat(reconciled).isEqualTo(1);
+        Purchase purchase = purchaseRepository.findById(stale.getId()).orElseThrow();
+        assertThat(purchase.getStatus()).isEqualTo(PurchaseStatus.COMPLETED);
+        assertThat(purchase.getTransactionId()).isEqualTo("tx-reconciled");
+    }
+
+    @Test
+    void reconcilerLeavesAPurchasePendingWhenTheGatewayTimesOutAgain() {
+        Purchase stale = purchaseRepository.save(pendingSince(LocalDateTime.now().minusHours(1)));
+        answerAfterRelease(PaymentResult.approved("tx-never"));
+
+        purchaseService.reconcileStalePurchases(LocalDateTime.now().minusMinutes(5), 10);
+
+        assertThat(statusOf(stale.getId())).isEqualTo(PurchaseStatus.PENDING);
+    }
+
+    @Test
+    void reconcilerIgnoresRecentPendingPurchases() {
+        Purchase recent = purchaseRepository.save(pendingSince(LocalDateTime.now()));
+
+        int reconciled = purchaseService.reconcileStalePurchases(LocalDateTime.now().minusMinutes(5), 10);
+
+        assertThat(reconciled).isZero();
+        assertThat(statusOf(recent.getId())).isEqualTo(PurchaseStatus.PENDING);
+    }
+
+    private void answerAfterRelease(PaymentResult result) {
+        when(paymentGateway.charge(any())).thenAnswer(invocation -> {
+            gatewayReleased.await(10, TimeUnit.SECONDS);
+            return result;
+        });
+    }
+
+    private PurchaseStatus statusOf(Long purchaseId) {
+        return purchaseRepository.findById(purchaseId).orElseThrow().getStatus();
+    }
+
+    private Purchase awaitSettled(Long purchaseId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Purchase purchase = purchaseRepository.findById(purchaseId).orElseThrow();
+        while (purchase.getStatus() == PurchaseStatus.PENDING && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            purchase = purchaseRepository.findById(purchaseId).orElseThrow();
+        }
+        return purchase;
+    }
+
+    private Purchase pendingSince(LocalDateTime purchaseDate) {
+        return Purchase.builder()
+                .user(user)
+                .movie(movie)
+                .amount(new BigDecimal("9.99"))
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .status(PurchaseStatus.PENDING)
+                .purchaseDate(purchaseDate)
+                .build();
+    }
+
+    private static Movie movie(String title) {
+        return Movie.builder()
+                .title(title)
+                .director("Michael Mann")
+                .releaseDate(LocalDate.of(2004, 8, 6))
+                .durationMinutes(120)
+                .rating(7.5)
+                .build();
+    }
+
+    private static PurchaseRequest request(Movie movie) {
+        return PurchaseRequest.builder()
+                .movieId(movie.getId())
+                .paymentMethod(PaymentMethod.CREDIT_CARD)
+                .idempotencyKey(UUID.randomUUID().toString())
+                .build();
+    }
+}
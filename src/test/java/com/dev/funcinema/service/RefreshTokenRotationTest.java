@@ -0,0 +1,137 @@
+package com.dev.funcinema.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.dev.funcinema.exception.InvalidTokenException;
+import com.dev.funcinema.model.User;
+import com.dev.funcinema.repository.RefreshTokenRepository;
+import com.dev.funcinema.repository.UserRepository;
+import com.dev.funcinema.security.JwtUtils;
+import com.dev.funcinema.security.TokenRevocationList;
+import com.dev.funcinema.security.UserDetailsImpl;
+import com.dev.funcinema.service.RefreshTokenService.IssuedTokens;
+
+// Refresh token rotation: each refresh consumes the token it was given, a consumed token that is
+// presented again revokes the whole session, and logout does the same. Revoking a session ends its
+// refresh tokens in the table and its access tokens through TokenRevocationList.
+// Runs the application on an in-memory H2 database (application-h2.yml).
+@SpringBootTest
+@ActiveProfiles("h2")
+class RefreshTokenRotationTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private UserDetailsImpl user;
+
+    @BeforeEach
+    void setUp() {
+        user = UserDetailsImpl.build(userRepository.save(User.builder()
+                .username("rotator")
+                .password("secret")
+                .email("rotator@example.com")
+                .mobileNumber("+6281234567892")
+                .fullName("Token Rotator")
+                .emailVerified(true)
+                .mobileVerified(true)
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void refreshIssuesSuccessorsInTheSameSession() {
+        IssuedTokens login = refreshTokenService.startSession(user);
+
+        IssuedTokens first = refreshTokenService.rotate(login.refreshToken());
+        IssuedTokens second = refreshTokenService.rotate(first.refreshToken());
+
+        String sessionId = sessionOf(login.accessToken());
+        assertThat(sessionOf(login.refreshToken())).isEqualTo(sessionId);
+        assertThat(sessionOf(first.accessToken())).isEqualTo(sessionId);
+        assertThat(sessionOf(second.refreshToken())).isEqualTo(sessionId);
+        assertThat(second.refreshToken()).isNotEqualTo(first.refreshToken());
+        assertThat(second.user().getId()).isEqualTo(user.getId());
+        assertThat(revocationList.isRevoked(sessionId)).isFalse();
+    }
+
+    @Test
+    void reusedRefreshTokenRevokesTheWholeSession() {
+        IssuedTokens login = refreshTokenService.startSession(user);
+        IssuedTokens successor = refreshTokenService.rotate(login.refreshToken());
+
+        // Presented again, e.g. by whoever copied it
+        assertThatThrownBy(() -> refreshTokenService.rotate(login.refreshToken()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("already been used");
+
+        // The legitimate holder's successor is revoked with the session, and stays revoked
+        // although the failed refresh threw
+        assertThatThrownBy(() -> refreshTokenService.rotate(successor.refreshToken()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("revoked");
+        assertThat(refreshTokenRepository.findAll()).allMatch(token -> token.getRevokedAt() != null);
+        assertThat(revocationList.isRevoked(sessionOf(successor.accessToken()))).isTrue();
+    }
+
+    @Test
+    void reuseInOneSessionLeavesOtherSessionsAlone() {
+        IssuedTokens compromised = refreshTokenService.startSession(user);
+        IssuedTokens other = refreshTokenService.startSession(user);
+        refreshTokenService.rotate(compromised.refreshToken());
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(compromised.refreshToken()))
+                .isInstanceOf(InvalidTokenException.class);
+
+        assertThat(revocationList.isRevoked(sessionOf(other.accessToken()))).isFalse();
+        assertThat(refreshTokenService.rotate(other.refreshToken()).accessToken()).isNotNull();
+    }
+
+    @Test
+    void logoutRevokesTheSession() {
+        IssuedTokens login = refreshTokenService.startSession(user);
+
+        refreshTokenService.revoke(login.refreshToken());
+
+        assertThat(revocationList.isRevoked(sessionOf(login.accessToken()))).isTrue();
+        assertThatThrownBy(() -> refreshTokenService.rotate(login.refreshToken()))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void accessTokenIsNotAcceptedAsARefreshToken() {
+        IssuedTokens login = refreshTokenService.startSession(user);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(login.accessToken()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessage("Invalid refresh token");
+    }
+
+    private String sessionOf(String token) {
+        return JwtUtils.getSessionId(jwtUtils.parseClaims(token));
+    }
+}